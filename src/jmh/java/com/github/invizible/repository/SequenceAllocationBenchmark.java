@@ -0,0 +1,106 @@
+package com.github.invizible.repository;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the entity ids handed out by the pooled-lo optimizer, depending on the allocation size: the
+ * optimizer calls the sequence of the database once per block of ids. Size 1 is a sequence call per insert,
+ * 50 the previous allocation size of the entities, 100 the current one.
+ * <p>
+ * The sequence calls are round-trips, which an embedded H2 hides: compare the sizes against PostgreSQL, e.g.
+ * {@code ./gradlew jmh -Pjmh.includes=SequenceAllocation -Pjmh.params=url=jdbc:postgresql://localhost:5432/publications,username=publications}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceAllocationBenchmark {
+
+    @Param({"1", "50", "100"})
+    public int allocationSize;
+
+    @Param("jdbc:h2:mem:sequence-benchmark")
+    public String url;
+
+    @Param("")
+    public String username;
+
+    @Param("")
+    public String password;
+
+    private Connection connection;
+
+    private PreparedStatement nextValue;
+
+    private PooledLoOptimizer optimizer;
+
+    private AccessCallback sequence;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(url, username, password);
+        String sequenceName = "benchmark_sequence_" + allocationSize;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop sequence if exists " + sequenceName);
+            statement.execute("create sequence " + sequenceName + " start with 1 increment by " + allocationSize);
+        }
+        nextValue = connection.prepareStatement("select nextval('" + sequenceName + "')");
+        optimizer = new PooledLoOptimizer(Long.class, allocationSize);
+        sequence = new AccessCallback() {
+
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                try (ResultSet resultSet = nextValue.executeQuery()) {
+                    resultSet.next();
+                    IntegralDataTypeHolder value = IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class);
+                    value.initialize(resultSet.getLong(1));
+                    return value;
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        nextValue.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public Serializable nextId() {
+        return optimizer.generate(sequence);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.invizible.security.jwt;
+
+import com.github.invizible.security.AuthoritiesConstants;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of building the authorities of a token from its "auth" claim.
+ * <p>
+ * Run it with the gc profiler to compare the allocations: {@code ./gradlew jmh -Pjmh.includes=AuthorityRegistry -Pjmh.profilers=gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorityRegistryBenchmark {
+
+    private final String claim = AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER;
+
+    private AuthorityRegistry authorityRegistry;
+
+    @Setup
+    public void setup() {
+        authorityRegistry = new AuthorityRegistry();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> splitClaim() {
+        return Arrays.stream(claim.split(","))
+            .map(SimpleGrantedAuthority::new)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> registry() {
+        return authorityRegistry.getAuthorities(claim);
+    }
+}
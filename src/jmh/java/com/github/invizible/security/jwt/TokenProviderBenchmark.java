@@ -0,0 +1,126 @@
+package com.github.invizible.security.jwt;
+
+import com.github.invizible.config.ApplicationProperties;
+import com.github.invizible.security.AuthoritiesConstants;
+
+import com.codahale.metrics.MetricRegistry;
+import io.github.jhipster.config.JHipsterProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Authentication overhead of a request carrying a JWT token.
+ * <p>
+ * {@link #validateThenGetAuthentication()} reproduces the former path of the JWTFilter, which parsed and verified the
+ * token twice per request. The other benchmarks measure {@link TokenProvider#resolveAuthentication(String)} on the
+ * first request of a token, which parses it once, and on the following ones, which are served from the cache.
+ * <p>
+ * {@link #resolveAuthenticationFirstRequest(FirstRequests)} times batches of {@value #FIRST_REQUESTS} distinct tokens,
+ * built before each iteration, so that every call misses the cache: its score is the time of a whole batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private static final String SECRET = "e5c9ee274ae87bc031adda32e27fa98b9290da83";
+
+    private JHipsterProperties jHipsterProperties;
+
+    private TokenProvider tokenProvider;
+
+    /**
+     * Number of distinct tokens resolved by each iteration of {@link #resolveAuthenticationFirstRequest(FirstRequests)}.
+     */
+    private static final int FIRST_REQUESTS = 10_000;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(SECRET);
+        tokenProvider = createTokenProvider();
+        token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user", "user",
+            Arrays.asList(new SimpleGrantedAuthority(AuthoritiesConstants.USER),
+                new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN))), false);
+        tokenProvider.resolveAuthentication(token);
+    }
+
+    /**
+     * An empty token provider, and the tokens it has never seen, rebuilt before each iteration.
+     */
+    @State(Scope.Thread)
+    public static class FirstRequests {
+
+        private TokenProvider tokenProvider;
+
+        private final String[] tokens = new String[FIRST_REQUESTS];
+
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setup(TokenProviderBenchmark benchmark) {
+            tokenProvider = benchmark.createTokenProvider();
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user-" + i, "user",
+                    Arrays.asList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+            }
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public Authentication validateThenGetAuthentication() {
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+        Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        Collection<? extends GrantedAuthority> authorities = Arrays.stream(claims.get("auth").toString().split(","))
+            .map(SimpleGrantedAuthority::new)
+            .collect(Collectors.toList());
+        return new UsernamePasswordAuthenticationToken(new User(claims.getSubject(), "", authorities), token, authorities);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5, batchSize = FIRST_REQUESTS)
+    @Measurement(iterations = 10, batchSize = FIRST_REQUESTS)
+    public TokenValidationResult resolveAuthenticationFirstRequest(FirstRequests firstRequests) {
+        return firstRequests.tokenProvider.resolveAuthentication(firstRequests.tokens[firstRequests.next++]);
+    }
+
+    @Benchmark
+    public TokenValidationResult resolveAuthenticationCached() {
+        return tokenProvider.resolveAuthentication(token);
+    }
+
+    private TokenProvider createTokenProvider() {
+        TokenProvider provider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), new MetricRegistry());
+        provider.init();
+        return provider;
+    }
+}
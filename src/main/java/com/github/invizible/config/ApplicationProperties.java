@@ -2,6 +2,9 @@ package com.github.invizible.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Properties specific to Publications.
  * <p>
@@ -11,4 +14,389 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Pagination pagination = new Pagination();
+
+    private final Feed feed = new Feed();
+
+    private final RubricCatalog rubricCatalog = new RubricCatalog();
+
+    private final Search search = new Search();
+
+    private final Jwt jwt = new Jwt();
+
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    private final LoginRateLimit loginRateLimit = new LoginRateLimit();
+
+    private final Cache cache = new Cache();
+
+    private final ResponseCache responseCache = new ResponseCache();
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Feed getFeed() {
+        return feed;
+    }
+
+    public RubricCatalog getRubricCatalog() {
+        return rubricCatalog;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Jwt getJwt() {
+        return jwt;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public LoginRateLimit getLoginRateLimit() {
+        return loginRateLimit;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public static class Pagination {
+
+        /**
+         * Delay, in milliseconds, between two refreshes of the approximate total counts.
+         */
+        private long countRefreshDelay = 60000;
+
+        public long getCountRefreshDelay() {
+            return countRefreshDelay;
+        }
+
+        public void setCountRefreshDelay(long countRefreshDelay) {
+            this.countRefreshDelay = countRefreshDelay;
+        }
+    }
+
+    public static class Feed {
+
+        /**
+         * Number of leading pages of the publication feed which are served from the feed cache.
+         */
+        private int cachedPages = 5;
+
+        public int getCachedPages() {
+            return cachedPages;
+        }
+
+        public void setCachedPages(int cachedPages) {
+            this.cachedPages = cachedPages;
+        }
+    }
+
+    public static class RubricCatalog {
+
+        /**
+         * Delay, in milliseconds, between two reconciliations of the publication counts of the rubric catalog
+         * with the database.
+         */
+        private long reconcileDelay = 300000;
+
+        public long getReconcileDelay() {
+            return reconcileDelay;
+        }
+
+        public void setReconcileDelay(long reconcileDelay) {
+            this.reconcileDelay = reconcileDelay;
+        }
+    }
+
+    public static class Search {
+
+        /**
+         * Directory of the publication search index, the index is kept in memory if none is set.
+         */
+        private String indexDirectory;
+
+        /**
+         * Delay, in milliseconds, between two reconciliations of the publication search index with the database.
+         */
+        private long reconcileDelay = 600000;
+
+        public String getIndexDirectory() {
+            return indexDirectory;
+        }
+
+        public void setIndexDirectory(String indexDirectory) {
+            this.indexDirectory = indexDirectory;
+        }
+
+        public long getReconcileDelay() {
+            return reconcileDelay;
+        }
+
+        public void setReconcileDelay(long reconcileDelay) {
+            this.reconcileDelay = reconcileDelay;
+        }
+    }
+
+    public static class Jwt {
+
+        /**
+         * JSON keyset file holding the asymmetric keys used to sign and verify the tokens. If none is set,
+         * the tokens are signed with the HS512 secret of jhipster.security.authentication.jwt.secret.
+         */
+        private String keysetFile;
+
+        /**
+         * Validity of the refresh tokens, used to get new access tokens without authenticating again.
+         */
+        private long refreshTokenValidityInSeconds = 2592000;
+
+        public String getKeysetFile() {
+            return keysetFile;
+        }
+
+        public void setKeysetFile(String keysetFile) {
+            this.keysetFile = keysetFile;
+        }
+
+        public long getRefreshTokenValidityInSeconds() {
+            return refreshTokenValidityInSeconds;
+        }
+
+        public void setRefreshTokenValidityInSeconds(long refreshTokenValidityInSeconds) {
+            this.refreshTokenValidityInSeconds = refreshTokenValidityInSeconds;
+        }
+    }
+
+    public static class PasswordHashing {
+
+        /**
+         * BCrypt cost of the password hashes: the passwords hashed with another cost are re-hashed on login.
+         */
+        private int strength = 10;
+
+        /**
+         * Number of threads hashing the passwords, so logins can't use all the CPUs.
+         */
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * Number of password hashes waiting for a thread, above which logins are rejected right away.
+         */
+        private int queueCapacity = 100;
+
+        public int getStrength() {
+            return strength;
+        }
+
+        public void setStrength(int strength) {
+            this.strength = strength;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public static class LoginRateLimit {
+
+        /**
+         * Whether the login attempts are rate limited.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Limit of the login attempts for a same username.
+         */
+        private final Bucket principal = new Bucket(5, 5);
+
+        /**
+         * Limit of the login attempts from a same remote address.
+         */
+        private final Bucket address = new Bucket(20, 30);
+
+        /**
+         * Number of buckets kept for each of the principals and the addresses, the idle ones being evicted first.
+         */
+        private int maxBuckets = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Bucket getPrincipal() {
+            return principal;
+        }
+
+        public Bucket getAddress() {
+            return address;
+        }
+
+        public int getMaxBuckets() {
+            return maxBuckets;
+        }
+
+        public void setMaxBuckets(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        public static class Bucket {
+
+            /**
+             * Number of attempts which can be made at once.
+             */
+            private int capacity;
+
+            /**
+             * Number of attempts given back each minute.
+             */
+            private int refillPerMinute;
+
+            public Bucket(int capacity, int refillPerMinute) {
+                this.capacity = capacity;
+                this.refillPerMinute = refillPerMinute;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public int getRefillPerMinute() {
+                return refillPerMinute;
+            }
+
+            public void setRefillPerMinute(int refillPerMinute) {
+                this.refillPerMinute = refillPerMinute;
+            }
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * Sizes of the cache regions, by cache name. The regions which are not listed hold
+         * jhipster.cache.ehcache.max-entries entries on heap.
+         * <p>
+         * The size of an entry is measured by walking its object graph, which suits the small disassembled
+         * entries of the Hibernate regions, but not the user caches holding User entities.
+         */
+        private final Map<String, Region> regions = new LinkedHashMap<>();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public static class Region {
+
+            /**
+             * Size of the region on the heap, in megabytes.
+             */
+            private long heapSizeMb = 10;
+
+            /**
+             * Size of the region off the heap, in megabytes, where the entries are serialized, out of reach of the
+             * garbage collector. It must be larger than the heap size, or 0 to keep the region on the heap only.
+             */
+            private long offHeapSizeMb;
+
+            /**
+             * Time to live of the entries, instead of jhipster.cache.ehcache.time-to-live-seconds.
+             */
+            private Long timeToLiveSeconds;
+
+            public long getHeapSizeMb() {
+                return heapSizeMb;
+            }
+
+            public void setHeapSizeMb(long heapSizeMb) {
+                this.heapSizeMb = heapSizeMb;
+            }
+
+            public long getOffHeapSizeMb() {
+                return offHeapSizeMb;
+            }
+
+            public void setOffHeapSizeMb(long offHeapSizeMb) {
+                this.offHeapSizeMb = offHeapSizeMb;
+            }
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
+    }
+
+    public static class ResponseCache {
+
+        /**
+         * Serve the anonymous reads of the publications and rubrics from the response cache.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Max age of the Cache-Control header of the anonymous reads, for the clients and shared caches.
+         */
+        private long maxAgeSeconds = 10;
+
+        /**
+         * Size, in bytes, of the largest response which is cached.
+         */
+        private int maxEntrySize = 262144;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxAgeSeconds() {
+            return maxAgeSeconds;
+        }
+
+        public void setMaxAgeSeconds(long maxAgeSeconds) {
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+
+        public int getMaxEntrySize() {
+            return maxEntrySize;
+        }
+
+        public void setMaxEntrySize(int maxEntrySize) {
+            this.maxEntrySize = maxEntrySize;
+        }
+    }
 }
@@ -1,51 +1,135 @@
 package com.github.invizible.config;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jcache.JCacheGaugeSet;
 import io.github.jhipster.config.JHipsterProperties;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
 import org.ehcache.expiry.Duration;
 import org.ehcache.expiry.Expirations;
 import org.ehcache.jsr107.Eh107Configuration;
 
 import java.util.concurrent.TimeUnit;
 
+import javax.cache.CacheManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.*;
 
+/**
+ * Ehcache configuration of the cache regions.
+ * <p>
+ * Each region holds jhipster.cache.ehcache.max-entries entries on heap, unless it is sized in megabytes in
+ * application.cache.regions: the large regions can then also have an off-heap tier, which holds many more
+ * entries without making the garbage collection pauses longer.
+ */
 @Configuration
 @EnableCaching
 @AutoConfigureAfter(value = { MetricsConfiguration.class })
 @AutoConfigureBefore(value = { WebConfigurer.class, DatabaseConfiguration.class })
 public class CacheConfiguration {
 
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache =
-            jHipsterProperties.getCache().getEhcache();
+    private static final String PROP_METRIC_REG_JCACHE_STATISTICS = "jcache.statistics";
 
-        jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
-                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
-                .build());
+    /**
+     * The unknown logins are only cached for a short time, so that a user can log in soon after being created
+     * on another node.
+     */
+    private static final long UNKNOWN_LOGINS_TIME_TO_LIVE_SECONDS = 60;
+
+    /**
+     * Region of the results of the cacheable queries.
+     */
+    static final String QUERY_RESULTS_REGION = org.hibernate.cache.internal.StandardQueryCache.class.getName();
+
+    /**
+     * Region of the last update time of each table, which tells Hibernate whether a cached query result is stale.
+     * Its entries must never expire, else a stale result could be served: it holds one entry per table, so it
+     * stays small.
+     */
+    static final String UPDATE_TIMESTAMPS_REGION = org.hibernate.cache.spi.UpdateTimestampsCache.class.getName();
+
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+
+    private final ApplicationProperties.Cache cache;
+
+    private final MetricRegistry metricRegistry;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                              MetricRegistry metricRegistry) {
+        this.ehcache = jHipsterProperties.getCache().getEhcache();
+        this.cache = applicationProperties.getCache();
+        this.metricRegistry = metricRegistry;
     }
 
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
-            cm.createCache(com.github.invizible.repository.UserRepository.USERS_BY_LOGIN_CACHE, jcacheConfiguration);
-            cm.createCache(com.github.invizible.repository.UserRepository.USERS_BY_EMAIL_CACHE, jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.User.class.getName(), jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.Authority.class.getName(), jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.User.class.getName() + ".authorities", jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.Rubric.class.getName(), jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.Publication.class.getName(), jcacheConfiguration);
-            cm.createCache(com.github.invizible.domain.Publication.class.getName() + ".rubrics", jcacheConfiguration);
+            createCache(cm, com.github.invizible.repository.UserRepository.USERS_BY_LOGIN_CACHE);
+            createCache(cm, com.github.invizible.repository.UserRepository.USERS_BY_EMAIL_CACHE);
+            createCache(cm, com.github.invizible.repository.UserRepository.USERS_BY_LOGIN_OR_EMAIL_CACHE);
+            createCache(cm, com.github.invizible.repository.UserRepository.UNKNOWN_LOGINS_CACHE, UNKNOWN_LOGINS_TIME_TO_LIVE_SECONDS);
+            createCache(cm, com.github.invizible.domain.User.class.getName());
+            createCache(cm, com.github.invizible.domain.Authority.class.getName());
+            createCache(cm, com.github.invizible.domain.User.class.getName() + ".authorities");
+            createCache(cm, com.github.invizible.domain.Rubric.class.getName());
+            createCache(cm, com.github.invizible.domain.Publication.class.getName());
+            createCache(cm, com.github.invizible.domain.Publication.class.getName() + ".rubrics");
+            createCache(cm, com.github.invizible.repository.PublicationRepository.PUBLICATIONS_FEED_CACHE);
+            createCache(cm, com.github.invizible.web.filter.AnonymousResponseCache.CACHE_NAME);
+            createCache(cm, QUERY_RESULTS_REGION);
+            createCache(cm, UPDATE_TIMESTAMPS_REGION);
+            cm.enableStatistics(com.github.invizible.repository.PublicationRepository.PUBLICATIONS_FEED_CACHE, true);
             // jhipster-needle-ehcache-add-entry
+
+            // The gauges are read from the statistics MBeans, which only exist once the caches are created
+            metricRegistry.register(PROP_METRIC_REG_JCACHE_STATISTICS, new JCacheGaugeSet());
         };
     }
+
+    private void createCache(CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, ehcache.getTimeToLiveSeconds());
+    }
+
+    private void createCache(CacheManager cm, String cacheName, long timeToLiveSeconds) {
+        cm.createCache(cacheName, jcacheConfiguration(cacheName, timeToLiveSeconds));
+    }
+
+    /**
+     * Build the configuration of a region.
+     *
+     * @param cacheName the name of the region
+     * @param timeToLiveSeconds the time to live of the entries, unless the region has its own or never expires
+     * @return the configuration
+     */
+    javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName, long timeToLiveSeconds) {
+        ApplicationProperties.Cache.Region region = cache.getRegions().get(cacheName);
+        ResourcePoolsBuilder resourcePools;
+        if (region == null) {
+            resourcePools = ResourcePoolsBuilder.heap(ehcache.getMaxEntries());
+        } else {
+            resourcePools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(region.getHeapSizeMb(), MemoryUnit.MB);
+            if (region.getOffHeapSizeMb() > 0) {
+                resourcePools = resourcePools.offheap(region.getOffHeapSizeMb(), MemoryUnit.MB);
+            }
+            if (region.getTimeToLiveSeconds() != null) {
+                timeToLiveSeconds = region.getTimeToLiveSeconds();
+            }
+            log.debug("Cache region {}: {}MB on heap, {}MB off heap", cacheName, region.getHeapSizeMb(),
+                region.getOffHeapSizeMb());
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+                .withExpiry(UPDATE_TIMESTAMPS_REGION.equals(cacheName) ? Expirations.noExpiration() :
+                    Expirations.timeToLiveExpiration(Duration.of(timeToLiveSeconds, TimeUnit.SECONDS)))
+                .build());
+    }
 }
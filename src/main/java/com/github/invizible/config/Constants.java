@@ -11,6 +11,9 @@ public final class Constants {
     public static final String SYSTEM_ACCOUNT = "system";
     public static final String ANONYMOUS_USER = "anonymoususer";
     public static final String DEFAULT_LANGUAGE = "en";
+
+    // Number of ids reserved by each call to hibernate_sequence, must be equal to the increment of the sequence
+    public static final int SEQUENCE_ALLOCATION_SIZE = 100;
     
     private Constants() {
     }
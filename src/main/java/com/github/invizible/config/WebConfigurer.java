@@ -1,5 +1,8 @@
 package com.github.invizible.config;
 
+import com.github.invizible.web.filter.AnonymousResponseCache;
+import com.github.invizible.web.filter.AnonymousResponseCacheFilter;
+
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 
@@ -13,6 +16,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.embedded.*;
 import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
 import io.undertow.UndertowOptions;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -124,6 +129,22 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         return new CorsFilter(source);
     }
 
+    /**
+     * Registers the response cache of the anonymous publication and rubric reads, right after the Spring Security
+     * filters: the CORS and security headers are still written on each request, but not cached.
+     */
+    @Bean
+    public FilterRegistrationBean anonymousResponseCacheFilter(AnonymousResponseCache anonymousResponseCache,
+        ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        ApplicationProperties.ResponseCache responseCache = applicationProperties.getResponseCache();
+        FilterRegistrationBean registration = new FilterRegistrationBean(
+            new AnonymousResponseCacheFilter(anonymousResponseCache, responseCache, metricRegistry));
+        registration.addUrlPatterns("/api/publications", "/api/publications/*", "/api/rubrics", "/api/rubrics/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        registration.setEnabled(responseCache.isEnabled());
+        return registration;
+    }
+
     /**
      * Initializes H2 console.
      */
@@ -1,5 +1,7 @@
 package com.github.invizible.domain;
 
+import com.github.invizible.config.Constants;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
@@ -18,7 +20,8 @@ public class PersistentAuditEvent implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator", sequenceName = "hibernate_sequence",
+        allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     @Column(name = "event_id")
     private Long id;
 
@@ -1,5 +1,8 @@
 package com.github.invizible.domain;
 
+import com.github.invizible.config.Constants;
+
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -24,7 +27,8 @@ public class Publication implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator", sequenceName = "hibernate_sequence",
+        allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
@@ -37,7 +41,8 @@ public class Publication implements Serializable {
     @Column(name = "text", nullable = false)
     private String text;
 
-    @Column(name = "publication_date")
+    @NotNull
+    @Column(name = "publication_date", nullable = false)
     private ZonedDateTime publicationDate = ZonedDateTime.now();
 
     @ManyToOne(optional = false)
@@ -45,11 +50,19 @@ public class Publication implements Serializable {
 
     @ManyToMany(fetch = FetchType.EAGER)
     @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+    @BatchSize(size = 20)
     @JoinTable(name = "publication_rubrics",
                joinColumns = @JoinColumn(name="publications_id", referencedColumnName="id"),
                inverseJoinColumns = @JoinColumn(name="rubrics_id", referencedColumnName="id"))
     private Set<Rubric> rubrics = new HashSet<>();
 
+    /**
+     * Incremented by Hibernate on each update, null on a publication which was never saved.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -133,6 +146,14 @@ public class Publication implements Serializable {
     public void setRubrics(Set<Rubric> rubrics) {
         this.rubrics = rubrics;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -3,9 +3,20 @@ package com.github.invizible.repository;
 import com.github.invizible.domain.Authority;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.List;
 
 /**
  * Spring Data JPA repository for the Authority entity.
  */
 public interface AuthorityRepository extends JpaRepository<Authority, String> {
+
+    /**
+     * All the authorities, served from the Hibernate query cache until an authority is changed.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<Authority> findAll();
 }
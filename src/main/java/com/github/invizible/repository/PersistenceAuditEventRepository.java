@@ -3,7 +3,9 @@ package com.github.invizible.repository;
 import com.github.invizible.domain.PersistentAuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.Instant;
 import java.util.List;
@@ -22,4 +24,9 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(String principle, Instant after, String type);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable);
+
+    @Query("select persistentAuditEvent from PersistentAuditEvent persistentAuditEvent")
+    Slice<PersistentAuditEvent> findSliceBy(Pageable pageable);
+
+    Slice<PersistentAuditEvent> findSliceByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable);
 }
@@ -0,0 +1,44 @@
+package com.github.invizible.repository;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the leading pages of the publication feed, cleared when the publications, their rubrics or their
+ * authors change.
+ *
+ * @see PublicationGraphCache
+ */
+@Component
+public class PublicationFeedCache extends PublicationGraphCache {
+
+    private static final long serialVersionUID = 1L;
+
+    public PublicationFeedCache(EntityManagerFactory entityManagerFactory, CacheManager cacheManager) {
+        super(entityManagerFactory, cacheManager, PublicationRepository.PUBLICATIONS_FEED_CACHE);
+    }
+
+    /**
+     * Get a page of the feed from the cache, or load it and store it unless the cache is cleared in the meantime.
+     *
+     * @param key the key of the page
+     * @param loader the loader of the page, when it isn't cached
+     * @param <T> the type of the page
+     * @return the cached or loaded page
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Supplier<T> loader) {
+        Cache.ValueWrapper cached = cache().get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        long generation = getGeneration();
+        T page = loader.get();
+        put(key, page, generation);
+        return page;
+    }
+}
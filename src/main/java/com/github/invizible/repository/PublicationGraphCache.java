@@ -0,0 +1,158 @@
+package com.github.invizible.repository;
+
+import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.Rubric;
+import com.github.invizible.domain.User;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base of the caches holding publications with their rubrics and author, cleared when a {@link Publication},
+ * a {@link Rubric} or a {@link User} is inserted, updated or deleted, whatever the code doing it.
+ * <p>
+ * The cache is cleared on the first change flushed by a transaction, and again once it is committed. The other
+ * changes of the same transaction don't clear it again, so a bulk import clears it twice per chunk, not per row.
+ * Each clear starts a new generation, and a value is only stored if no clear happened while it was built: a value
+ * read before a commit can't be stored after it, and served until the region expires.
+ */
+public abstract class PublicationGraphCache implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+    PostCollectionRemoveEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Logger log = LoggerFactory.getLogger(PublicationGraphCache.class);
+
+    private final transient EntityManagerFactory entityManagerFactory;
+
+    private final transient CacheManager cacheManager;
+
+    private final String cacheName;
+
+    private final transient AtomicLong generation = new AtomicLong();
+
+    /**
+     * The sessions whose transaction already cleared the cache, until the transaction completes.
+     */
+    private final transient Set<EventSource> clearingSessions = ConcurrentHashMap.newKeySet();
+
+    protected PublicationGraphCache(EntityManagerFactory entityManagerFactory, CacheManager cacheManager,
+                                    String cacheName) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+        this.cacheName = cacheName;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    /**
+     * @return the current generation, to be given back when storing a value
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Clear all the cached values.
+     */
+    public void clear() {
+        log.debug("Clearing the {} cache", cacheName);
+        generation.incrementAndGet();
+        cache().clear();
+    }
+
+    /**
+     * Store a value, unless the cache was cleared since it started being built.
+     *
+     * @param key the key of the value
+     * @param value the value
+     * @param generation the generation when the value started being built
+     */
+    protected void put(Object key, Object value, long generation) {
+        if (this.generation.get() != generation) {
+            return;
+        }
+        Cache cache = cache();
+        cache.put(key, value);
+        if (this.generation.get() != generation) {
+            // Cleared in between
+            cache.evict(key);
+        }
+    }
+
+    protected Cache cache() {
+        return cacheManager.getCache(cacheName);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        clearIfCached(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        clearIfCached(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        clearIfCached(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        clearIfCached(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        clearIfCached(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        clearIfCached(event.getSession(), event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void clearIfCached(EventSource session, Object entity) {
+        if (!(entity instanceof Publication || entity instanceof Rubric || entity instanceof User)
+            || !clearingSessions.add(session)) {
+            return;
+        }
+        clear();
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            clearingSessions.remove(session);
+            if (success) {
+                clear();
+            }
+        });
+    }
+}
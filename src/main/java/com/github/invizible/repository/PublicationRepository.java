@@ -1,11 +1,20 @@
 package com.github.invizible.repository;
 
 import com.github.invizible.domain.Publication;
+import com.github.invizible.service.dto.PublicationSummaryDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Spring Data JPA repository for the Publication entity.
@@ -14,12 +23,126 @@ import java.util.List;
 @Repository
 public interface PublicationRepository extends JpaRepository<Publication, Long> {
 
+    String PUBLICATIONS_FEED_CACHE = "publicationsFeed";
+
+    int EXPORT_FETCH_SIZE = 500;
+
     @Query("select publication from Publication publication where publication.author.login = ?#{principal.username}")
     List<Publication> findByAuthorIsCurrentUser();
     @Query("select distinct publication from Publication publication left join fetch publication.rubrics")
     List<Publication> findAllWithEagerRelationships();
 
+    @Query("select publication from Publication publication")
+    Slice<Publication> findSliceBy(Pageable pageable);
+
+    /**
+     * First page of the publications of a rubric, newest first.
+     * A plain join on the join table is enough here: each (publication, rubric) pair is unique, so no distinct is needed.
+     */
+    @Query("select publication from Publication publication join publication.rubrics rubric " +
+        "where rubric.id = :rubricId order by publication.id desc")
+    Slice<Publication> findByRubric(@Param("rubricId") Long rubricId, Pageable pageable);
+
+    /**
+     * Page of the publications of a rubric following the last publication seen.
+     * The seek follows the idx_publication_rubrics_rubrics_id index order, so deep pages cost the same as the first one.
+     */
+    @Query("select publication from Publication publication join publication.rubrics rubric " +
+        "where rubric.id = :rubricId and publication.id < :id order by publication.id desc")
+    Slice<Publication> findByRubricAfter(@Param("rubricId") Long rubricId, @Param("id") Long id, Pageable pageable);
+
     @Query("select publication from Publication publication left join fetch publication.rubrics where publication.id =:id")
     Publication findOneWithEagerRelationships(@Param("id") Long id);
 
+    /**
+     * Version of a publication, read without loading it, or null if there is no such publication.
+     */
+    @Query("select publication.version from Publication publication where publication.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    /**
+     * Versions of a publication and of the entities serialized with it, read without loading them: a row per rubric,
+     * holding the version of the publication, the last modification date of its author, and the id and version of
+     * the rubric, or no row if there is no such publication.
+     */
+    @Query("select publication.version, author.lastModifiedDate, rubric.id, rubric.version from Publication publication " +
+        "join publication.author author left join publication.rubrics rubric where publication.id = :id")
+    List<Object[]> findVersionsById(@Param("id") Long id);
+
+    /**
+     * Versions of all the publications, as (id, version) rows ordered by id, read with a forward-only cursor.
+     * The stream must be consumed, and closed, within a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select publication.id, publication.version from Publication publication order by publication.id")
+    Stream<Object[]> streamAllVersions();
+
+    /**
+     * Page of publication ids, to be loaded with {@link #findAllWithEagerRelationships(Collection)}.
+     * Paginating on ids only keeps the fetch joins out of the LIMIT query.
+     */
+    @Query(value = "select publication.id from Publication publication",
+        countQuery = "select count(publication) from Publication publication")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query(value = "select new com.github.invizible.service.dto.PublicationSummaryDTO(publication.id, publication.title, " +
+        "substring(publication.text, 1, " + PublicationSummaryDTO.EXCERPT_LENGTH + "), publication.publicationDate, " +
+        "publication.author.login) from Publication publication",
+        countQuery = "select count(publication) from Publication publication")
+    Page<PublicationSummaryDTO> findAllSummaries(Pageable pageable);
+
+    /**
+     * Rubric ids of the given publications, as (publication id, rubric id) pairs.
+     */
+    @Query("select publication.id, rubric.id from Publication publication join publication.rubrics rubric " +
+        "where publication.id in :ids")
+    List<Object[]> findRubricIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Number of publications of each rubric, as (rubric id, count) pairs. Rubrics without publications are left out.
+     */
+    @Query("select rubric.id, count(publication.id) from Publication publication join publication.rubrics rubric " +
+        "group by rubric.id")
+    List<Object[]> countByRubric();
+
+    @Query("select distinct publication from Publication publication join fetch publication.author " +
+        "left join fetch publication.rubrics where publication.id in :ids")
+    List<Publication> findAllWithEagerRelationships(@Param("ids") Collection<Long> ids);
+
+    /**
+     * First page of the publication feed, newest first.
+     * The pageable must not carry a sort: the order is fixed so that it matches the keyset.
+     */
+    @Query("select publication from Publication publication " +
+        "order by publication.publicationDate desc, publication.id desc")
+    Slice<Publication> findFeed(Pageable pageable);
+
+    /**
+     * Page of the publication feed following the (publicationDate, id) keyset of the last row seen.
+     * The row value comparison is a single range on the idx_publication_date_id index, so the cost does not depend
+     * on the position in the feed.
+     */
+    @Query("select publication from Publication publication " +
+        "where (publication.publicationDate, publication.id) < (:date, :id) " +
+        "order by publication.publicationDate desc, publication.id desc")
+    Slice<Publication> findFeedAfter(@Param("date") ZonedDateTime date, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * All the publications, as (id, title, text, publicationDate, author login, rubric id) rows ordered by id:
+     * a publication with several rubrics spans several consecutive rows, and one without rubric has a null rubric id.
+     * The rows are plain values read with a forward-only cursor, so nothing accumulates in the persistence context.
+     * The stream must be consumed, and closed, within a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select publication.id, publication.title, publication.text, publication.publicationDate, author.login, rubric.id " +
+        "from Publication publication join publication.author author left join publication.rubrics rubric " +
+        "order by publication.id, rubric.id")
+    Stream<Object[]> streamAllForExport();
+
 }
@@ -0,0 +1,46 @@
+package com.github.invizible.repository;
+
+import com.github.invizible.domain.RefreshToken;
+import com.github.invizible.domain.User;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the RefreshToken entity.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("select token from RefreshToken token join fetch token.user user left join fetch user.authorities " +
+        "where token.tokenHash = :tokenHash")
+    Optional<RefreshToken> findOneWithUserByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Delete a token, without loading it.
+     *
+     * @param id the id of the token
+     * @return the number of deleted tokens: 0 if it was already deleted by a concurrent request
+     */
+    @Modifying
+    @Query("delete from RefreshToken token where token.id = :id")
+    int deleteOneById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.user = :user")
+    int deleteAllByUser(@Param("user") User user);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.expiresAt < :now")
+    int deleteAllByExpiresAtBefore(@Param("now") Instant now);
+}
@@ -4,7 +4,10 @@ import com.github.invizible.domain.Rubric;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 
 /**
  * Spring Data JPA repository for the Rubric entity.
@@ -13,4 +16,17 @@ import org.springframework.data.jpa.repository.*;
 @Repository
 public interface RubricRepository extends JpaRepository<Rubric, Long> {
 
+    /**
+     * All the rubrics, served from the Hibernate query cache until a rubric is changed.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<Rubric> findAll();
+
+    /**
+     * Version of a rubric, read without loading it, or null if there is no such rubric.
+     */
+    @Query("select rubric.version from Rubric rubric where rubric.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
 }
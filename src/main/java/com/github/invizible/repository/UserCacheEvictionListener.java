@@ -0,0 +1,136 @@
+package com.github.invizible.repository;
+
+import com.github.invizible.domain.User;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Evicts the cached users when a {@link User} is inserted, updated or deleted, whatever the code doing it.
+ * <p>
+ * The keys are evicted when the change is flushed, so the transaction reads its own changes, and again
+ * once it is committed, so that a user read by a concurrent transaction in between isn't left in the caches.
+ * Both the old and the new login and email are evicted, as the unknown logins are cached too.
+ */
+@Component
+public class UserCacheEvictionListener implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener, PostCollectionUpdateEventListener, PostCollectionRecreateEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] CACHE_NAMES = {
+        UserRepository.USERS_BY_LOGIN_CACHE,
+        UserRepository.USERS_BY_EMAIL_CACHE,
+        UserRepository.USERS_BY_LOGIN_OR_EMAIL_CACHE,
+        UserRepository.UNKNOWN_LOGINS_CACHE
+    };
+
+    private final transient Logger log = LoggerFactory.getLogger(UserCacheEvictionListener.class);
+
+    private final transient EntityManagerFactory entityManagerFactory;
+
+    private final transient CacheManager cacheManager;
+
+    public UserCacheEvictionListener(EntityManagerFactory entityManagerFactory, CacheManager cacheManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User) {
+            evict(event.getSession(), keys((User) event.getEntity()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User) {
+            Set<String> keys = keys((User) event.getEntity());
+            if (event.getOldState() != null) {
+                keys.add(property(event.getPersister(), event.getOldState(), "login"));
+                keys.add(property(event.getPersister(), event.getOldState(), "email"));
+            }
+            evict(event.getSession(), keys);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            evict(event.getSession(), keys((User) event.getEntity()));
+        }
+    }
+
+    /**
+     * The authorities of a user are a collection, which is updated without the user itself.
+     */
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof User) {
+            evict(event.getSession(), keys((User) event.getAffectedOwnerOrNull()));
+        }
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof User) {
+            evict(event.getSession(), keys((User) event.getAffectedOwnerOrNull()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void evict(EventSource session, Set<String> keys) {
+        keys.remove(null);
+        evict(keys);
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            if (success) {
+                evict(keys);
+            }
+        });
+    }
+
+    private void evict(Set<String> keys) {
+        log.debug("Evicting the cached users {}", keys);
+        for (String cacheName : CACHE_NAMES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            keys.forEach(cache::evict);
+        }
+    }
+
+    private static Set<String> keys(User user) {
+        return new HashSet<>(Arrays.asList(user.getLogin(), user.getEmail()));
+    }
+
+    private static String property(EntityPersister persister, Object[] state, String propertyName) {
+        return (String) state[persister.getEntityMetamodel().getPropertyIndex(propertyName)];
+    }
+}
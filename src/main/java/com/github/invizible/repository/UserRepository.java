@@ -5,9 +5,15 @@ import com.github.invizible.domain.User;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 import java.time.Instant;
@@ -22,6 +28,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     String USERS_BY_EMAIL_CACHE = "usersByEmail";
 
+    String USERS_BY_LOGIN_OR_EMAIL_CACHE = "usersByLoginOrEmail";
+
+    String UNKNOWN_LOGINS_CACHE = "unknownLogins";
+
     Optional<User> findOneByActivationKey(String activationKey);
 
     List<User> findAllByActivatedIsFalseAndCreatedDateBefore(Instant dateTime);
@@ -32,6 +42,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneByLogin(String login);
 
+    /**
+     * Find a user by login, locking its row until the end of the transaction.
+     *
+     * @param login the login of the user
+     * @return the locked user, if any
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<User> findOneForUpdateByLogin(String login);
+
     @EntityGraph(attributePaths = "authorities")
     Optional<User> findOneWithAuthoritiesById(Long id);
 
@@ -43,5 +62,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmail(String email);
 
+    /**
+     * Find the users whose login or email is the given value, with their authorities, in a single query.
+     * <p>
+     * Only the non-empty results are cached: the unknown logins are cached for a shorter time in the
+     * {@link #UNKNOWN_LOGINS_CACHE} by the caller, so that they can't evict the known users.
+     *
+     * @param loginOrEmail the login or email of the user
+     * @return the users, at most one by login and one by email
+     */
+    @EntityGraph(attributePaths = "authorities")
+    @Query("select distinct user from User user where user.login = :loginOrEmail or user.email = :loginOrEmail")
+    @Cacheable(cacheNames = USERS_BY_LOGIN_OR_EMAIL_CACHE, unless = "#result.isEmpty()")
+    List<User> findAllWithAuthoritiesByLoginOrEmail(@Param("loginOrEmail") String loginOrEmail);
+
     Page<User> findAllByLoginNot(Pageable pageable, String login);
+
+    Slice<User> findSliceByLoginNot(Pageable pageable, String login);
 }
@@ -0,0 +1,138 @@
+package com.github.invizible.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password encoder running the hashes on a dedicated, bounded pool of threads.
+ * <p>
+ * Hashing a password is deliberately expensive, so a login storm could otherwise use all the CPUs and the
+ * request threads, and starve the rest of the API. Here at most "threads" passwords are hashed at once, and
+ * when "queueCapacity" more are already waiting, a {@link PasswordHashingOverloadedException} is thrown
+ * right away instead of queueing the request.
+ * <p>
+ * The {@code $2b$} and {@code $2y$} hashes of other BCrypt implementations are verified as {@code $2a$} hashes,
+ * which they are equivalent to, as the encoder of Spring Security 4 only accepts the latter.
+ */
+public class BoundedBCryptPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final PasswordEncoder delegate;
+
+    private final int strength;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Meter rejections;
+
+    public BoundedBCryptPasswordEncoder(int strength, int threads, int queueCapacity, MetricRegistry metricRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new PasswordHashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.rejections = metricRegistry.meter(MetricRegistry.name(BoundedBCryptPasswordEncoder.class, "rejections"));
+        metricRegistry.register(MetricRegistry.name(BoundedBCryptPasswordEncoder.class, "queue", "size"),
+            (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register(MetricRegistry.name(BoundedBCryptPasswordEncoder.class, "active"),
+            (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        String normalizedPassword = normalizeVersion(encodedPassword);
+        return execute(() -> delegate.matches(rawPassword, normalizedPassword));
+    }
+
+    /**
+     * Hash a password on the pool without waiting for the result.
+     *
+     * @param rawPassword the password to hash
+     * @return the future hash of the password
+     * @throws PasswordHashingOverloadedException if too many passwords are already waiting to be hashed
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> delegate.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            throw new PasswordHashingOverloadedException("Too many passwords are waiting to be hashed");
+        }
+    }
+
+    /**
+     * Check if an encoded password must be hashed again, as it doesn't use the configured cost.
+     *
+     * @param encodedPassword the encoded password
+     * @return true if the password should be encoded again
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    private static String normalizeVersion(String encodedPassword) {
+        if (encodedPassword != null && (encodedPassword.startsWith("$2b$") || encodedPassword.startsWith("$2y$"))) {
+            return "$2a$" + encodedPassword.substring(4);
+        }
+        return encodedPassword;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            throw new PasswordHashingOverloadedException("Too many passwords are waiting to be hashed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Could not hash a password", e.getCause());
+        }
+    }
+
+    private static final class PasswordHashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
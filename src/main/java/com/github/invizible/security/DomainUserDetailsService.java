@@ -4,6 +4,8 @@ import com.github.invizible.domain.User;
 import com.github.invizible.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,14 +21,17 @@ import java.util.stream.Collectors;
  * Authenticate a user from the database.
  */
 @Component("userDetailsService")
-public class DomainUserDetailsService implements UserDetailsService {
+public class DomainUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final CacheManager cacheManager;
+
+    public DomainUserDetailsService(UserRepository userRepository, CacheManager cacheManager) {
         this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
     }
 
     @Override
@@ -34,13 +39,42 @@ public class DomainUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        Optional<User> userByEmailFromDatabase = userRepository.findOneWithAuthoritiesByEmail(lowercaseLogin);
-        return userByEmailFromDatabase.map(user -> createSpringSecurityUser(lowercaseLogin, user)).orElseGet(() -> {
-            Optional<User> userByLoginFromDatabase = userRepository.findOneWithAuthoritiesByLogin(lowercaseLogin);
-            return userByLoginFromDatabase.map(user -> createSpringSecurityUser(lowercaseLogin, user))
-                .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the " +
-                    "database"));
-        });
+        Cache unknownLogins = cacheManager.getCache(UserRepository.UNKNOWN_LOGINS_CACHE);
+        if (unknownLogins.get(lowercaseLogin) != null) {
+            throw userNotFound(lowercaseLogin);
+        }
+        List<User> users = userRepository.findAllWithAuthoritiesByLoginOrEmail(lowercaseLogin);
+        // The email is prioritized over the login, as a login may look like the email of another user
+        Optional<User> user = users.stream()
+            .filter(candidate -> lowercaseLogin.equals(candidate.getEmail()))
+            .findFirst();
+        if (!user.isPresent()) {
+            user = users.stream().findFirst();
+        }
+        if (!user.isPresent()) {
+            unknownLogins.put(lowercaseLogin, Boolean.TRUE);
+            throw userNotFound(lowercaseLogin);
+        }
+        return createSpringSecurityUser(lowercaseLogin, user.get());
+    }
+
+    @Override
+    @Transactional
+    public boolean updatePassword(String login, String checkedPassword, String encodedPassword) {
+        // The row is locked, so a password change can't be committed between the check and the update
+        Optional<User> user = userRepository.findOneForUpdateByLogin(login)
+            .filter(candidate -> checkedPassword.equals(candidate.getPassword()));
+        if (!user.isPresent()) {
+            log.debug("Not re-hashing the password of User {}, as it was changed", login);
+            return false;
+        }
+        user.get().setPassword(encodedPassword);
+        log.debug("Re-hashed the password of User: {}", login);
+        return true;
+    }
+
+    private UsernameNotFoundException userNotFound(String lowercaseLogin) {
+        return new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database");
     }
 
     private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
@@ -0,0 +1,23 @@
+package com.github.invizible.security;
+
+/**
+ * This exception is thrown when there are too many login attempts for a user or from an address.
+ */
+public class LoginRateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public LoginRateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the number of seconds after which a new attempt will be accepted
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.invizible.security;
+
+import com.github.invizible.config.ApplicationProperties;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter of the login attempts, with a token bucket for each username and another one for each remote
+ * address, so that credential stuffing can't turn into hashing passwords all day long.
+ * <p>
+ * The buckets are lock-free: each one only holds the time at which it will be full again, which is moved
+ * forward by a compare-and-set for every accepted attempt. The buckets which are full again are idle, and are
+ * evicted every minute. When there are too many buckets, the idle ones are also evicted on a new username or
+ * address, but at most once per refill interval, and the new usernames or addresses which still don't fit
+ * share a single overflow bucket, so that they are limited together instead of not at all.
+ * <p>
+ * The remote address is the one of the client when the application is behind a proxy, as long as the proxy is
+ * trusted by server.use-forward-headers.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final Logger log = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final boolean enabled;
+
+    private final Buckets principals;
+
+    private final Buckets addresses;
+
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public LoginRateLimiter(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this(applicationProperties.getLoginRateLimit(), metricRegistry, System::nanoTime);
+    }
+
+    LoginRateLimiter(ApplicationProperties.LoginRateLimit loginRateLimit, MetricRegistry metricRegistry, LongSupplier nanoTime) {
+        this.enabled = loginRateLimit.isEnabled();
+        long now = nanoTime.getAsLong();
+        this.principals = new Buckets("principal", loginRateLimit.getPrincipal(), loginRateLimit.getMaxBuckets(), now,
+            metricRegistry);
+        this.addresses = new Buckets("address", loginRateLimit.getAddress(), loginRateLimit.getMaxBuckets(), now,
+            metricRegistry);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Take a token for a login attempt from the buckets of its username and of its remote address.
+     * The token of the address is given back when the attempt is rejected for its username.
+     *
+     * @param username the username of the attempt
+     * @param remoteAddress the remote address of the attempt, if known
+     * @throws LoginRateLimitExceededException if one of the buckets is empty
+     */
+    public void checkAttempt(String username, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        AtomicLong address = remoteAddress == null ? null : addresses.take(remoteAddress, now);
+        if (username != null) {
+            try {
+                principals.take(username.toLowerCase(Locale.ENGLISH), now);
+            } catch (LoginRateLimitExceededException e) {
+                // A locked out username doesn't drain the budget of the users sharing its address
+                if (address != null) {
+                    addresses.refund(address);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Evict the buckets which are full again, as they are the same as new ones.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long now = nanoTime.getAsLong();
+        int evicted = principals.evictIdle(now) + addresses.evictIdle(now);
+        log.debug("Evicted {} idle login rate limit buckets", evicted);
+    }
+
+    /**
+     * The token buckets of one kind of key.
+     */
+    private static final class Buckets {
+
+        private final ConcurrentMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+        private final String name;
+
+        private final long refillIntervalNanos;
+
+        private final long capacityNanos;
+
+        private final int maxBuckets;
+
+        /**
+         * The bucket shared by the keys which don't fit in the map.
+         */
+        private final AtomicLong overflow;
+
+        /**
+         * The time of the last eviction of the idle buckets made for a new key.
+         */
+        private final AtomicLong lastEvictionAt;
+
+        private final Meter rejections;
+
+        Buckets(String name, ApplicationProperties.LoginRateLimit.Bucket bucket, int maxBuckets, long now,
+                MetricRegistry metricRegistry) {
+            this.name = name;
+            this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / bucket.getRefillPerMinute();
+            this.capacityNanos = refillIntervalNanos * bucket.getCapacity();
+            this.maxBuckets = maxBuckets;
+            this.overflow = new AtomicLong(now);
+            this.lastEvictionAt = new AtomicLong(now - refillIntervalNanos);
+            this.rejections = metricRegistry.meter(MetricRegistry.name(LoginRateLimiter.class, name, "rejections"));
+            metricRegistry.register(MetricRegistry.name(LoginRateLimiter.class, name, "buckets"),
+                (Gauge<Integer>) fullAt::size);
+        }
+
+        AtomicLong take(String key, long now) {
+            AtomicLong bucket = fullAt.get(key);
+            if (bucket == null) {
+                if (fullAt.size() >= maxBuckets) {
+                    long lastEviction = lastEvictionAt.get();
+                    if (now - lastEviction >= refillIntervalNanos && lastEvictionAt.compareAndSet(lastEviction, now)) {
+                        evictIdle(now);
+                    }
+                }
+                bucket = fullAt.size() < maxBuckets ? fullAt.computeIfAbsent(key, k -> new AtomicLong(now)) : overflow;
+            }
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + refillIntervalNanos;
+                long wait = next - now - capacityNanos;
+                if (wait > 0) {
+                    rejections.mark();
+                    throw new LoginRateLimitExceededException("Too many login attempts for this " + name,
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)));
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return bucket;
+                }
+            }
+        }
+
+        void refund(AtomicLong bucket) {
+            bucket.addAndGet(-refillIntervalNanos);
+        }
+
+        int evictIdle(long now) {
+            int size = fullAt.size();
+            fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+            return size - fullAt.size();
+        }
+    }
+}
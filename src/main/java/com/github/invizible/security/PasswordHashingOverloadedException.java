@@ -0,0 +1,13 @@
+package com.github.invizible.security;
+
+/**
+ * This exception is thrown when there are too many passwords waiting to be hashed.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.invizible.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Authentication provider which hashes the password of a user again when it doesn't use the configured
+ * BCrypt cost, so the cost can be changed without resetting the passwords.
+ * <p>
+ * The new hash is computed and saved on the password hashing pool, so the login doesn't wait for a second hash.
+ * It is only saved if the user still has the password hash checked at login: a password changed or reset while
+ * the new hash was waiting on the pool isn't reverted.
+ */
+public class PasswordRehashingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final Logger log = LoggerFactory.getLogger(PasswordRehashingAuthenticationProvider.class);
+
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    private final BoundedBCryptPasswordEncoder passwordEncoder;
+
+    public PasswordRehashingAuthenticationProvider(UserDetailsService userDetailsService,
+                                                   UserDetailsPasswordService userDetailsPasswordService,
+                                                   BoundedBCryptPasswordEncoder passwordEncoder) {
+        this.userDetailsPasswordService = userDetailsPasswordService;
+        this.passwordEncoder = passwordEncoder;
+        setUserDetailsService(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        if (passwordEncoder.needsRehash(user.getPassword())) {
+            String login = user.getUsername();
+            String checkedPassword = user.getPassword();
+            try {
+                passwordEncoder.encodeAsync(authentication.getCredentials().toString())
+                    .thenAccept(encodedPassword ->
+                        userDetailsPasswordService.updatePassword(login, checkedPassword, encodedPassword))
+                    .exceptionally(e -> {
+                        log.warn("Could not re-hash the password of User {}: {}", login, e.getMessage());
+                        return null;
+                    });
+            } catch (PasswordHashingOverloadedException e) {
+                // The password will be hashed again on a next login
+                log.debug("Could not re-hash the password of User {}: {}", login, e.getMessage());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
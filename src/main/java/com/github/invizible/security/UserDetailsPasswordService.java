@@ -0,0 +1,19 @@
+package com.github.invizible.security;
+
+/**
+ * Service to change the password hash of a user, once the user has been authenticated.
+ * <p>
+ * Mirrors the interface of the same name in Spring Security 5, which is not available in Spring Security 4.
+ */
+public interface UserDetailsPasswordService {
+
+    /**
+     * Replace the password hash of a user, unless the password was changed since it was checked.
+     *
+     * @param login the login of the user
+     * @param checkedPassword the password hash the user was authenticated with
+     * @param encodedPassword the new password hash
+     * @return true if the password hash was replaced
+     */
+    boolean updatePassword(String login, String checkedPassword, String encodedPassword);
+}
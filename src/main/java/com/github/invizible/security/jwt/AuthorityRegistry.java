@@ -0,0 +1,81 @@
+package com.github.invizible.security.jwt;
+
+import com.github.invizible.security.AuthoritiesConstants;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the authorities carried by the tokens.
+ * <p>
+ * There are only a handful of authorities, and of combinations of them, so the authorities of a token
+ * are looked up by the value of its "auth" claim, and shared as an immutable list instead of being
+ * rebuilt for each token. Each authority is also shared between the lists it belongs to.
+ */
+final class AuthorityRegistry {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Bound of each map, above which new entries are built but not registered.
+     */
+    static final int MAX_ENTRIES = 1000;
+
+    private final ConcurrentMap<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, List<GrantedAuthority>> authorityLists = new ConcurrentHashMap<>();
+
+    AuthorityRegistry() {
+        getAuthority(AuthoritiesConstants.ADMIN);
+        getAuthority(AuthoritiesConstants.USER);
+        getAuthority(AuthoritiesConstants.ANONYMOUS);
+    }
+
+    /**
+     * Get the authorities of an "auth" claim.
+     *
+     * @param claim the comma separated authorities
+     * @return the shared, immutable list of authorities
+     */
+    List<GrantedAuthority> getAuthorities(String claim) {
+        List<GrantedAuthority> list = authorityLists.get(claim);
+        if (list == null) {
+            list = parse(claim);
+            if (authorityLists.size() < MAX_ENTRIES) {
+                List<GrantedAuthority> previous = authorityLists.putIfAbsent(claim, list);
+                if (previous != null) {
+                    list = previous;
+                }
+            }
+        }
+        return list;
+    }
+
+    GrantedAuthority getAuthority(String role) {
+        GrantedAuthority authority = authorities.get(role);
+        if (authority == null) {
+            authority = new SimpleGrantedAuthority(role);
+            if (authorities.size() < MAX_ENTRIES) {
+                GrantedAuthority previous = authorities.putIfAbsent(role, authority);
+                if (previous != null) {
+                    authority = previous;
+                }
+            }
+        }
+        return authority;
+    }
+
+    private List<GrantedAuthority> parse(String claim) {
+        List<GrantedAuthority> list = new ArrayList<>();
+        for (String role : claim.split(SEPARATOR)) {
+            list.add(getAuthority(role));
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.invizible.security.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of asymmetric keys used to sign and verify the JWT tokens, loaded from a JSON file such as:
+ * <pre>
+ * {
+ *   "signingKey": "2026-10",
+ *   "keys": [
+ *     { "kid": "2026-10", "algorithm": "ES256", "publicKey": "(X.509, base64)", "privateKey": "(PKCS#8, base64)" },
+ *     { "kid": "2026-04", "algorithm": "RS256", "publicKey": "(X.509, base64)" }
+ *   ]
+ * }
+ * </pre>
+ * Tokens are signed with the signing key, and carry its id in their "kid" header. They are verified with the
+ * public key of their "kid", which must use the algorithm of the token: keys can be rotated by adding the new
+ * key to the set on every node, switching the signing key to it, then removing the old key once all the tokens
+ * it signed have expired.
+ * <p>
+ * The keys are decoded once when the set is loaded, and the set holds a parser resolving them, so verifying a
+ * token only costs its signature check.
+ */
+public final class JWTKeySet extends SigningKeyResolverAdapter {
+
+    private final String signingKeyId;
+
+    private final SignatureAlgorithm signingAlgorithm;
+
+    private final PrivateKey signingKey;
+
+    private final Map<String, SignatureAlgorithm> algorithms;
+
+    private final Map<String, PublicKey> verificationKeys;
+
+    private final JwtParser parser;
+
+    private JWTKeySet(String signingKeyId, SignatureAlgorithm signingAlgorithm, PrivateKey signingKey,
+                      Map<String, SignatureAlgorithm> algorithms, Map<String, PublicKey> verificationKeys) {
+        this.signingKeyId = signingKeyId;
+        this.signingAlgorithm = signingAlgorithm;
+        this.signingKey = signingKey;
+        this.algorithms = algorithms;
+        this.verificationKeys = verificationKeys;
+        this.parser = Jwts.parser().setSigningKeyResolver(this);
+    }
+
+    /**
+     * Load a key set from a JSON file.
+     *
+     * @param file the key set file
+     * @return the key set
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the key set is invalid
+     */
+    public static JWTKeySet load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Read a key set in JSON.
+     *
+     * @param in the stream to read the key set from
+     * @return the key set
+     * @throws IOException if the stream can't be read
+     * @throws IllegalArgumentException if the key set is invalid
+     */
+    public static JWTKeySet read(InputStream in) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(in);
+        String signingKeyId = text(root, "signingKey");
+        Map<String, SignatureAlgorithm> algorithms = new HashMap<>();
+        Map<String, PublicKey> verificationKeys = new HashMap<>();
+        PrivateKey signingKey = null;
+        for (JsonNode node : root.path("keys")) {
+            String kid = text(node, "kid");
+            SignatureAlgorithm algorithm = algorithm(kid, text(node, "algorithm"));
+            if (algorithms.put(kid, algorithm) != null) {
+                throw new IllegalArgumentException("Duplicate JWT key: " + kid);
+            }
+            try {
+                KeyFactory keyFactory = KeyFactory.getInstance(algorithm.isRsa() ? "RSA" : "EC");
+                verificationKeys.put(kid, keyFactory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(text(node, "publicKey")))));
+                if (kid.equals(signingKeyId)) {
+                    signingKey = keyFactory.generatePrivate(
+                        new PKCS8EncodedKeySpec(Base64.getDecoder().decode(text(node, "privateKey"))));
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException("Invalid JWT key: " + kid, e);
+            }
+        }
+        if (signingKey == null) {
+            throw new IllegalArgumentException("Unknown JWT signing key: " + signingKeyId);
+        }
+        return new JWTKeySet(signingKeyId, algorithms.get(signingKeyId), signingKey,
+            Collections.unmodifiableMap(algorithms), Collections.unmodifiableMap(verificationKeys));
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public SignatureAlgorithm getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public Set<String> getKeyIds() {
+        return verificationKeys.keySet();
+    }
+
+    /**
+     * @return the parser verifying the tokens with the keys of this set
+     */
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        if (kid == null || !verificationKeys.containsKey(kid)) {
+            throw new SignatureException("Unknown JWT key: " + kid);
+        }
+        // The algorithm of the header is not trusted, it must be the one of the key
+        if (!algorithms.get(kid).getValue().equals(header.getAlgorithm())) {
+            throw new SignatureException("Unexpected JWT algorithm " + header.getAlgorithm() + " for key " + kid);
+        }
+        return verificationKeys.get(kid);
+    }
+
+    private static SignatureAlgorithm algorithm(String kid, String name) {
+        SignatureAlgorithm algorithm;
+        try {
+            algorithm = SignatureAlgorithm.forName(name);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unknown JWT algorithm " + name + " for key " + kid, e);
+        }
+        if (!algorithm.isRsa() && !algorithm.isEllipticCurve()) {
+            throw new IllegalArgumentException("JWT key " + kid + " must use an RSA or elliptic curve algorithm, not " + name);
+        }
+        return algorithm;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("Missing field in the JWT key set: " + field);
+        }
+        return value.asText();
+    }
+}
@@ -1,8 +1,22 @@
 package com.github.invizible.security.jwt;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.invizible.config.ApplicationProperties;
 import io.github.jhipster.config.JHipsterProperties;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
@@ -11,12 +25,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import io.jsonwebtoken.*;
 
+/**
+ * Creates and validates the JWT tokens.
+ * <p>
+ * The tokens verified on this node are cached with their authentication until they expire, so a token
+ * is parsed and its signature checked once, instead of on every request that carries it. The cache is
+ * keyed by a hash of the token, and bounded to {@value #MAX_CACHED_TOKENS} entries.
+ * <p>
+ * Tokens are signed with the HS512 secret, unless a key set file is configured in
+ * application.jwt.keyset-file: they are then signed and verified with the asymmetric keys of the
+ * {@link JWTKeySet}. The file is reloaded when it changes, so keys can be rotated without a restart. A cached
+ * token is only served while the key which verified it is still in the current key set.
+ */
 @Component
 public class TokenProvider {
 
@@ -24,6 +51,8 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    static final int MAX_CACHED_TOKENS = 10000;
+
     private String secretKey;
 
     private long tokenValidityInMilliseconds;
@@ -32,8 +61,30 @@ public class TokenProvider {
 
     private final JHipsterProperties jHipsterProperties;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    private Path keySetFile;
+
+    private long keySetLastModified;
+
+    private volatile JWTKeySet keySet;
+
+    private final AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+
+    private final ConcurrentMap<String, CachedAuthentication> authenticationCache = new ConcurrentHashMap<>();
+
+    private final Counter cacheHits;
+
+    private final Counter cacheMisses;
+
+    public TokenProvider(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                         MetricRegistry metricRegistry) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
+        this.cacheHits = metricRegistry.counter(MetricRegistry.name(TokenProvider.class, "cache", "hits"));
+        this.cacheMisses = metricRegistry.counter(MetricRegistry.name(TokenProvider.class, "cache", "misses"));
+        metricRegistry.register(MetricRegistry.name(TokenProvider.class, "cache", "size"),
+            (Gauge<Integer>) authenticationCache::size);
     }
 
     @PostConstruct
@@ -45,6 +96,45 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
+
+        String keySetFileName = applicationProperties.getJwt().getKeysetFile();
+        if (StringUtils.hasText(keySetFileName)) {
+            this.keySetFile = Paths.get(keySetFileName);
+            try {
+                loadKeySet();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the JWT key set " + keySetFile, e);
+            }
+        }
+    }
+
+    /**
+     * Reload the key set if its file has changed. The cached tokens are dropped once the new key set is in use, as
+     * their key may have been removed: a token verified with the old key set and cached after the clear is still
+     * rejected, by the check of its key id. If the new key set can't be loaded, the current one is kept.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void reloadKeySet() {
+        if (keySetFile == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(keySetFile).toMillis() != keySetLastModified) {
+                loadKeySet();
+                authenticationCache.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not reload the JWT key set {}, keeping the current one: {}", keySetFile, e.getMessage());
+        }
+    }
+
+    private void loadKeySet() throws IOException {
+        long lastModified = Files.getLastModifiedTime(keySetFile).toMillis();
+        JWTKeySet loadedKeySet = JWTKeySet.load(keySetFile);
+        log.info("Loaded the JWT keys {} from {}, signing with {}", loadedKeySet.getKeyIds(), keySetFile,
+            loadedKeySet.getSigningKeyId());
+        this.keySet = loadedKeySet;
+        this.keySetLastModified = lastModified;
     }
 
     public String createToken(Authentication authentication, Boolean rememberMe) {
@@ -60,50 +150,153 @@ public class TokenProvider {
             validity = new Date(now + this.tokenValidityInMilliseconds);
         }
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
             .setSubject(authentication.getName())
             .claim(AUTHORITIES_KEY, authorities)
-            .signWith(SignatureAlgorithm.HS512, secretKey)
-            .setExpiration(validity)
-            .compact();
+            .setExpiration(validity);
+        JWTKeySet currentKeySet = keySet;
+        if (currentKeySet == null) {
+            builder.signWith(SignatureAlgorithm.HS512, secretKey);
+        } else {
+            builder.setHeaderParam(JwsHeader.KEY_ID, currentKeySet.getSigningKeyId())
+                .signWith(currentKeySet.getSigningAlgorithm(), currentKeySet.getSigningKey());
+        }
+        return builder.compact();
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parser()
-            .setSigningKey(secretKey)
-            .parseClaimsJws(token)
-            .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
-
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        Authentication authentication = getCachedAuthentication(token);
+        if (authentication != null) {
+            return authentication;
+        }
+        return parseAndCache(token);
     }
 
     public boolean validateToken(String authToken) {
+        return resolveAuthentication(authToken).isValid();
+    }
+
+    /**
+     * Validate a token and get its authentication, parsing the token at most once.
+     *
+     * @param authToken the token
+     * @return the result holding either the authentication, or the reason why the token is invalid
+     */
+    public TokenValidationResult resolveAuthentication(String authToken) {
+        Authentication authentication = getCachedAuthentication(authToken);
+        if (authentication != null) {
+            return TokenValidationResult.valid(authentication);
+        }
         try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(authToken);
-            return true;
+            return TokenValidationResult.valid(parseAndCache(authToken));
         } catch (SignatureException e) {
             log.info("Invalid JWT signature.");
             log.trace("Invalid JWT signature trace: {}", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Failure.INVALID_SIGNATURE);
         } catch (MalformedJwtException e) {
             log.info("Invalid JWT token.");
             log.trace("Invalid JWT token trace: {}", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Failure.MALFORMED);
         } catch (ExpiredJwtException e) {
             log.info("Expired JWT token.");
             log.trace("Expired JWT token trace: {}", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Failure.EXPIRED);
         } catch (UnsupportedJwtException e) {
             log.info("Unsupported JWT token.");
             log.trace("Unsupported JWT token trace: {}", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Failure.UNSUPPORTED);
         } catch (IllegalArgumentException e) {
             log.info("JWT token compact of handler are invalid.");
             log.trace("JWT token compact of handler are invalid trace: {}", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Failure.INVALID);
+        }
+    }
+
+    /**
+     * Drop the cached tokens which have expired.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredTokens() {
+        long now = System.currentTimeMillis();
+        authenticationCache.values().removeIf(cached -> cached.isExpired(now));
+    }
+
+    private Authentication getCachedAuthentication(String token) {
+        if (token == null) {
+            return null;
+        }
+        CachedAuthentication cached = authenticationCache.get(hash(token));
+        if (cached == null || cached.isExpired(System.currentTimeMillis()) || !isActiveKey(cached.keyId)) {
+            cacheMisses.inc();
+            return null;
+        }
+        cacheHits.inc();
+        return cached.authentication;
+    }
+
+    /**
+     * Verify a token, and cache its authentication until the token expires.
+     */
+    private Authentication parseAndCache(String token) {
+        JWTKeySet currentKeySet = keySet;
+        JwtParser parser = currentKeySet == null ? Jwts.parser().setSigningKey(secretKey) : currentKeySet.getParser();
+        Jws<Claims> jws = parser.parseClaimsJws(token);
+        Claims claims = jws.getBody();
+
+        Collection<? extends GrantedAuthority> authorities =
+            authorityRegistry.getAuthorities(claims.get(AUTHORITIES_KEY).toString());
+
+        User principal = new User(claims.getSubject(), "", authorities);
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        if (claims.getExpiration() != null) {
+            if (authenticationCache.size() >= MAX_CACHED_TOKENS) {
+                evictExpiredTokens();
+            }
+            if (authenticationCache.size() < MAX_CACHED_TOKENS) {
+                authenticationCache.put(hash(token), new CachedAuthentication(authentication,
+                    currentKeySet == null ? null : jws.getHeader().getKeyId(), claims.getExpiration().getTime()));
+            }
+        }
+        return authentication;
+    }
+
+    /**
+     * Whether a token verified with the given key would still be accepted: the key id is null for the HS512 secret.
+     */
+    private boolean isActiveKey(String keyId) {
+        JWTKeySet currentKeySet = keySet;
+        if (currentKeySet == null) {
+            return keyId == null;
+        }
+        return keyId != null && currentKeySet.getKeyIds().contains(keyId);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedAuthentication {
+
+        private final Authentication authentication;
+
+        private final String keyId;
+
+        private final long expiresAt;
+
+        CachedAuthentication(Authentication authentication, String keyId, long expiresAt) {
+            this.authentication = authentication;
+            this.keyId = keyId;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
         }
-        return false;
     }
 }
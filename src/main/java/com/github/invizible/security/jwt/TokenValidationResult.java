@@ -0,0 +1,55 @@
+package com.github.invizible.security.jwt;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * The result of the validation of a JWT token: either the authentication it carries, or the reason why it was rejected.
+ */
+public final class TokenValidationResult {
+
+    /**
+     * The reasons why a token can be rejected.
+     */
+    public enum Failure {
+        INVALID_SIGNATURE,
+        MALFORMED,
+        EXPIRED,
+        UNSUPPORTED,
+        INVALID
+    }
+
+    private final Authentication authentication;
+
+    private final Failure failure;
+
+    private TokenValidationResult(Authentication authentication, Failure failure) {
+        this.authentication = authentication;
+        this.failure = failure;
+    }
+
+    public static TokenValidationResult valid(Authentication authentication) {
+        return new TokenValidationResult(authentication, null);
+    }
+
+    public static TokenValidationResult invalid(Failure failure) {
+        return new TokenValidationResult(null, failure);
+    }
+
+    public boolean isValid() {
+        return authentication != null;
+    }
+
+    /**
+     * @return the authentication of a valid token, or null if the token is invalid
+     */
+    public Authentication getAuthentication() {
+        return authentication;
+    }
+
+    /**
+     * @return the reason why the token is invalid, or null if it is valid
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+}
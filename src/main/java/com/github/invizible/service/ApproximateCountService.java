@@ -0,0 +1,85 @@
+package com.github.invizible.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Service providing approximate row counts for paginated list endpoints.
+ * <p>
+ * List endpoints that opt out of exact counting still report a total, read from the PostgreSQL
+ * planner statistics (pg_class.reltuples) when available, or from a periodically refreshed
+ * exact count otherwise. Either way, at most one count per table is computed per refresh period,
+ * whatever the request rate.
+ */
+@Service
+public class ApproximateCountService {
+
+    private static final String RELTUPLES_QUERY = "select reltuples::bigint from pg_class where relname = ?";
+
+    private final Logger log = LoggerFactory.getLogger(ApproximateCountService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean postgresql;
+
+    private final Map<String, LongSupplier> exactCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> counts = new ConcurrentHashMap<>();
+
+    public ApproximateCountService(JdbcTemplate jdbcTemplate, JpaProperties jpaProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgresql = jpaProperties.getDatabase() == Database.POSTGRESQL;
+    }
+
+    /**
+     * Get the approximate number of rows of a table.
+     *
+     * @param tableName the name of the table
+     * @param exactCounter the exact count, used when no planner statistics are available
+     * @return the approximate number of rows
+     */
+    public long getCount(String tableName, LongSupplier exactCounter) {
+        Long count = counts.get(tableName);
+        if (count == null) {
+            exactCounters.putIfAbsent(tableName, exactCounter);
+            count = refreshCount(tableName);
+        }
+        return count;
+    }
+
+    /**
+     * Refresh all the counts which have been requested at least once.
+     * <p>
+     * This is scheduled to get fired every "application.pagination.count-refresh-delay" milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${application.pagination.count-refresh-delay:60000}")
+    public void refreshCounts() {
+        exactCounters.keySet().forEach(this::refreshCount);
+    }
+
+    private long refreshCount(String tableName) {
+        long count = -1;
+        if (postgresql) {
+            Long reltuples = jdbcTemplate.queryForObject(RELTUPLES_QUERY, Long.class, tableName);
+            if (reltuples != null) {
+                count = reltuples;
+            }
+        }
+        if (count <= 0) {
+            // The table has never been analyzed, or planner statistics are not available
+            count = exactCounters.get(tableName).getAsLong();
+        }
+        log.debug("Approximate count of table {} refreshed: {}", tableName, count);
+        counts.put(tableName, count);
+        return count;
+    }
+}
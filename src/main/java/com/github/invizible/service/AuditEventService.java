@@ -5,6 +5,7 @@ import com.github.invizible.repository.PersistenceAuditEventRepository;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,12 +25,16 @@ public class AuditEventService {
 
     private final AuditEventConverter auditEventConverter;
 
+    private final ApproximateCountService approximateCountService;
+
     public AuditEventService(
         PersistenceAuditEventRepository persistenceAuditEventRepository,
-        AuditEventConverter auditEventConverter) {
+        AuditEventConverter auditEventConverter,
+        ApproximateCountService approximateCountService) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
+        this.approximateCountService = approximateCountService;
     }
 
     public Page<AuditEvent> findAll(Pageable pageable) {
@@ -42,6 +47,20 @@ public class AuditEventService {
             .map(auditEventConverter::convertToAuditEvent);
     }
 
+    public Slice<AuditEvent> findSlice(Pageable pageable) {
+        return persistenceAuditEventRepository.findSliceBy(pageable)
+            .map(auditEventConverter::convertToAuditEvent);
+    }
+
+    public Slice<AuditEvent> findSliceByDates(Instant fromDate, Instant toDate, Pageable pageable) {
+        return persistenceAuditEventRepository.findSliceByAuditEventDateBetween(fromDate, toDate, pageable)
+            .map(auditEventConverter::convertToAuditEvent);
+    }
+
+    public long countApproximately() {
+        return approximateCountService.getCount("_persistent_audit_event", persistenceAuditEventRepository::count);
+    }
+
     public Optional<AuditEvent> find(Long id) {
         return Optional.ofNullable(persistenceAuditEventRepository.findOne(id)).map
             (auditEventConverter::convertToAuditEvent);
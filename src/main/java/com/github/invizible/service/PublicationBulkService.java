@@ -0,0 +1,322 @@
+package com.github.invizible.service;
+
+import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.Rubric;
+import com.github.invizible.domain.User;
+import com.github.invizible.repository.PublicationRepository;
+import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.service.dto.PublicationBulkResultDTO;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service for importing publications in bulk.
+ * <p>
+ * Items are validated one by one, and the valid ones are inserted in chunks of
+ * {@code hibernate.jdbc.batch_size} publications, each chunk in its own transaction: Hibernate sends
+ * the inserts of a chunk as JDBC batches, and the persistence context is cleared between chunks. Imports
+ * streamed as NDJSON are also read and answered chunk by chunk, so memory stays flat whatever their size.
+ */
+@Service
+public class PublicationBulkService {
+
+    private static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final Logger log = LoggerFactory.getLogger(PublicationBulkService.class);
+
+    private final PublicationRepository publicationRepository;
+
+    private final RubricRepository rubricRepository;
+
+    private final PublicationSearchService publicationSearchService;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final int batchSize;
+
+    public PublicationBulkService(PublicationRepository publicationRepository, RubricRepository rubricRepository,
+                                  PublicationSearchService publicationSearchService, EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager, Validator validator,
+                                  ObjectMapper objectMapper, JpaProperties jpaProperties) {
+        this.publicationRepository = publicationRepository;
+        this.rubricRepository = rubricRepository;
+        this.publicationSearchService = publicationSearchService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        String batchSizeProperty = jpaProperties.getProperties().get(BATCH_SIZE_PROPERTY);
+        this.batchSize = batchSizeProperty == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(batchSizeProperty);
+    }
+
+    /**
+     * Create publications in bulk.
+     * <p>
+     * An invalid item, or one referring to an unknown rubric, is rejected without affecting the
+     * others. If the database rejects a chunk, all the items of that chunk are reported as failed.
+     *
+     * @param publications the publications to create
+     * @param author the author of the publications
+     * @return the result of each item, in the order of the request
+     */
+    public List<PublicationBulkResultDTO> createAll(List<Publication> publications, User author) {
+        log.debug("Request to create {} Publications in bulk", publications.size());
+        List<PublicationBulkResultDTO> results = new ArrayList<>(publications.size());
+        createAll(publications.iterator(), author, results::add);
+        return results;
+    }
+
+    /**
+     * Create publications in bulk from an NDJSON stream, one publication per line, and write the result of each
+     * line as NDJSON too.
+     * <p>
+     * The lines are read, inserted and answered one chunk at a time, so the memory used doesn't depend on the
+     * size of the import. A line which can't be read as a publication is rejected like an invalid item.
+     * The input stream is not closed, and the output stream is flushed but not closed.
+     *
+     * @param in the NDJSON stream of the publications to create
+     * @param out the stream to write the results to, in the order of the lines
+     * @param author the author of the publications
+     * @return the number of publications created
+     */
+    public long importAll(InputStream in, OutputStream out, User author) {
+        log.debug("Request to import a stream of Publications in bulk");
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by hand, instead of the space Jackson puts between root values
+            generator.setRootValueSeparator(null);
+            // The results are flushed as the output buffer fills up, not one by one
+            ObjectWriter resultWriter = objectMapper.writerFor(PublicationBulkResultDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            long created = createAll(new PublicationLines(lines, objectMapper.readerFor(Publication.class)), author,
+                result -> {
+                    try {
+                        resultWriter.writeValue(generator, result);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            generator.flush();
+            log.debug("Imported {} Publications", created);
+            return created;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Create publications in bulk, one chunk of {@code hibernate.jdbc.batch_size} items at a time.
+     *
+     * @return the number of publications created
+     */
+    private long createAll(Iterator<Publication> publications, User author,
+                           Consumer<PublicationBulkResultDTO> resultHandler) {
+        Map<Long, Rubric> rubrics = new HashMap<>();
+        List<Publication> items = new ArrayList<>(batchSize);
+        int index = 0;
+        long created = 0;
+        while (publications.hasNext()) {
+            items.add(publications.next());
+            if (items.size() == batchSize || !publications.hasNext()) {
+                for (PublicationBulkResultDTO result : createChunk(items, index, author, rubrics)) {
+                    if (result.isCreated()) {
+                        created++;
+                    }
+                    resultHandler.accept(result);
+                }
+                index += items.size();
+                items.clear();
+            }
+        }
+        return created;
+    }
+
+    private List<PublicationBulkResultDTO> createChunk(List<Publication> items, int firstIndex, User author,
+                                                       Map<Long, Rubric> rubrics) {
+        findRubrics(items, rubrics);
+        List<PublicationBulkResultDTO> results = new ArrayList<>(items.size());
+        List<Publication> chunk = new ArrayList<>(items.size());
+        List<PublicationBulkResultDTO> chunkResults = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Publication publication = items.get(i);
+            PublicationBulkResultDTO result = new PublicationBulkResultDTO(firstIndex + i);
+            results.add(result);
+            if (prepare(publication, author, rubrics, result.getErrors())) {
+                chunk.add(publication);
+                chunkResults.add(result);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, chunkResults);
+        }
+        return results;
+    }
+
+    /**
+     * Load the rubrics referred to by the publications which aren't known yet, with a single query.
+     * The unknown ids are kept with a null rubric, so they aren't looked up again.
+     */
+    private void findRubrics(List<Publication> publications, Map<Long, Rubric> rubrics) {
+        Set<Long> rubricIds = publications.stream()
+            .filter(Objects::nonNull)
+            .flatMap(publication -> publication.getRubrics().stream())
+            .map(Rubric::getId)
+            .filter(Objects::nonNull)
+            .filter(rubricId -> !rubrics.containsKey(rubricId))
+            .collect(Collectors.toSet());
+        if (rubricIds.isEmpty()) {
+            return;
+        }
+        for (Rubric rubric : rubricRepository.findAll(rubricIds)) {
+            rubrics.put(rubric.getId(), rubric);
+        }
+        rubricIds.forEach(rubricId -> rubrics.putIfAbsent(rubricId, null));
+    }
+
+    /**
+     * Validate a publication and attach its author and rubrics.
+     *
+     * @return true if the publication can be inserted, false if errors were reported
+     */
+    private boolean prepare(Publication publication, User author, Map<Long, Rubric> rubrics, List<String> errors) {
+        if (publication == null) {
+            errors.add("The publication is missing or unreadable");
+            return false;
+        }
+        if (publication.getId() != null) {
+            errors.add("A new publication cannot already have an ID");
+        }
+        for (ConstraintViolation<Publication> violation : validator.validate(publication)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        Set<Rubric> resolvedRubrics = new HashSet<>();
+        for (Rubric rubric : publication.getRubrics()) {
+            Rubric resolvedRubric = rubric.getId() == null ? null : rubrics.get(rubric.getId());
+            if (resolvedRubric == null) {
+                errors.add("Unknown rubric: " + rubric.getId());
+            } else {
+                resolvedRubrics.add(resolvedRubric);
+            }
+        }
+        if (!errors.isEmpty()) {
+            return false;
+        }
+        publication.setRubrics(resolvedRubrics);
+        publication.setAuthor(author);
+        return true;
+    }
+
+    private void insert(List<Publication> chunk, List<PublicationBulkResultDTO> chunkResults) {
+        try {
+            transactionTemplate.execute(status -> {
+                publicationRepository.save(chunk);
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not insert a chunk of {} publications: {}", chunk.size(), e.getMessage());
+            for (PublicationBulkResultDTO result : chunkResults) {
+                result.getErrors().add("The publication could not be saved");
+            }
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            chunkResults.get(i).setId(chunk.get(i).getId());
+        }
+        publicationSearchService.indexAll(chunk);
+    }
+
+    /**
+     * The publications of the non blank lines of an NDJSON stream, read one at a time. A line which can't be read
+     * as a publication gives a null one.
+     */
+    private static final class PublicationLines implements Iterator<Publication> {
+
+        private final BufferedReader lines;
+
+        private final ObjectReader reader;
+
+        private String nextLine;
+
+        PublicationLines(BufferedReader lines, ObjectReader reader) {
+            this.lines = lines;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (nextLine == null) {
+                    String line = lines.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.trim().isEmpty()) {
+                        nextLine = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Publication next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            try {
+                return reader.readValue(line);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.invizible.service;
+
+import com.github.invizible.repository.PublicationRepository;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service for exporting all the publications as NDJSON: one JSON object per line.
+ * <p>
+ * The rows are streamed from the database and written as they are read through Jackson's streaming
+ * generator, so the memory used doesn't depend on the number of publications.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PublicationExportService {
+
+    private final Logger log = LoggerFactory.getLogger(PublicationExportService.class);
+
+    private final PublicationRepository publicationRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public PublicationExportService(PublicationRepository publicationRepository, ObjectMapper objectMapper) {
+        this.publicationRepository = publicationRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write all the publications, ordered by id.
+     * <p>
+     * Each line holds the id, title, text, publicationDate, authorLogin and rubricIds of a publication.
+     * The output stream is flushed but not closed.
+     *
+     * @param out the stream to write to
+     * @return the number of publications written
+     */
+    public long exportAll(OutputStream out) {
+        log.debug("Request to export all Publications");
+        long count = 0;
+        try (Stream<Object[]> rows = publicationRepository.streamAllForExport();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by hand, instead of the space Jackson puts between root values
+            generator.setRootValueSeparator(null);
+            Long currentId = null;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Long id = (Long) row[0];
+                if (!id.equals(currentId)) {
+                    if (currentId != null) {
+                        endPublication(generator);
+                        count++;
+                    }
+                    startPublication(generator, row);
+                    currentId = id;
+                }
+                if (row[5] != null) {
+                    generator.writeNumber((Long) row[5]);
+                }
+            }
+            if (currentId != null) {
+                endPublication(generator);
+                count++;
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Exported {} Publications", count);
+        return count;
+    }
+
+    /**
+     * Write the fields of a publication, up to the opening of its rubric ids.
+     */
+    private void startPublication(JsonGenerator generator, Object[] row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", (Long) row[0]);
+        generator.writeStringField("title", (String) row[1]);
+        generator.writeStringField("text", (String) row[2]);
+        generator.writeStringField("publicationDate", DateTimeFormatter.ISO_OFFSET_DATE_TIME.format((ZonedDateTime) row[3]));
+        generator.writeStringField("authorLogin", (String) row[4]);
+        generator.writeArrayFieldStart("rubricIds");
+    }
+
+    private void endPublication(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
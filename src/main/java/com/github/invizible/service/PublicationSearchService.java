@@ -0,0 +1,516 @@
+package com.github.invizible.service;
+
+import com.github.invizible.config.ApplicationProperties;
+import com.github.invizible.domain.Publication;
+import com.github.invizible.repository.PublicationRepository;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.function.FunctionScoreQuery;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Service for full-text search over publications.
+ * <p>
+ * Publications are indexed in an embedded Lucene index, which is kept up to date by the write paths of
+ * the publications. The index is local to each node: only the writes handled by this node are indexed
+ * incrementally. The index is therefore reconciled with the database at startup, and then every
+ * "application.search.reconcile-delay" milliseconds: the version of each indexed publication is compared with the
+ * database, so the writes of the other nodes are searchable after at most that delay.
+ * <p>
+ * The writes to the index are guarded by {@code this}: the reconciliation loads each page of publications while
+ * holding the lock, so a newer version indexed by a request thread in between is written after it, not overwritten.
+ * <p>
+ * Results are ranked by relevance, with a bonus for recent publications.
+ */
+@Service
+public class PublicationSearchService {
+
+    private static final String ID_FIELD = "id";
+
+    private static final String TITLE_FIELD = "title";
+
+    private static final String TEXT_FIELD = "text";
+
+    private static final String DATE_FIELD = "publicationDate";
+
+    private static final String VERSION_FIELD = "version";
+
+    private static final int REINDEX_PAGE_SIZE = 1000;
+
+    /**
+     * The maximum number of results which can be paged through, as the results up to the page are all collected.
+     */
+    public static final int MAX_RESULT_WINDOW = 10000;
+
+    private final Logger log = LoggerFactory.getLogger(PublicationSearchService.class);
+
+    private final PublicationRepository publicationRepository;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    public PublicationSearchService(PublicationRepository publicationRepository, ApplicationProperties applicationProperties,
+                                    PlatformTransactionManager transactionManager) {
+        this.publicationRepository = publicationRepository;
+        this.applicationProperties = applicationProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        String indexDirectory = applicationProperties.getSearch().getIndexDirectory();
+        Directory directory;
+        if (StringUtils.isBlank(indexDirectory)) {
+            log.debug("Using an in-memory search index");
+            directory = new RAMDirectory();
+        } else {
+            log.debug("Using the search index in {}", indexDirectory);
+            directory = FSDirectory.open(Paths.get(indexDirectory));
+        }
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+    }
+
+    /**
+     * Reconcile the index with the database, for instance after a crash or on a fresh node.
+     * <p>
+     * This is done once the application is ready, as the database schema may be created asynchronously.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile the search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reindex the publications whose version in the index differs from the database, and remove the deleted ones.
+     * <p>
+     * The index is read before the database, so a publication created in between is never removed. The indexed
+     * versions are read from the doc values into arrays sorted by id, and compared with the versions of the database
+     * streamed in the same order. This is scheduled to get fired every "application.search.reconcile-delay"
+     * milliseconds.
+     */
+    @Scheduled(initialDelayString = "${application.search.reconcile-delay:600000}",
+        fixedDelayString = "${application.search.reconcile-delay:600000}")
+    public void reconcile() {
+        IndexedVersions indexedVersions = readIndexedVersions();
+        List<Long> staleIds = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            int indexed = 0;
+            try (Stream<Object[]> versions = publicationRepository.streamAllVersions()) {
+                Iterator<Object[]> iterator = versions.iterator();
+                while (iterator.hasNext()) {
+                    Object[] version = iterator.next();
+                    long id = (Long) version[0];
+                    while (indexed < indexedVersions.size && indexedVersions.ids[indexed] < id) {
+                        deletedIds.add(indexedVersions.ids[indexed++]);
+                    }
+                    if (indexed < indexedVersions.size && indexedVersions.ids[indexed] == id) {
+                        if (indexedVersions.versions[indexed++] != (Long) version[1]) {
+                            staleIds.add(id);
+                        }
+                    } else {
+                        staleIds.add(id);
+                    }
+                }
+            }
+            while (indexed < indexedVersions.size) {
+                deletedIds.add(indexedVersions.ids[indexed++]);
+            }
+            return null;
+        });
+        log.debug("Search index reconciled: {} publications to reindex, {} to remove", staleIds.size(),
+            deletedIds.size());
+        try {
+            for (Long id : deletedIds) {
+                indexWriter.deleteDocuments(new Term(ID_FIELD, id.toString()));
+            }
+            for (int i = 0; i < staleIds.size(); i += REINDEX_PAGE_SIZE) {
+                List<Long> ids = staleIds.subList(i, Math.min(i + REINDEX_PAGE_SIZE, staleIds.size()));
+                synchronized (this) {
+                    // Loaded with the lock held, so a write committed meanwhile is indexed after this version
+                    for (Publication publication : publicationRepository.findAll(ids)) {
+                        indexWriter.updateDocument(new Term(ID_FIELD, publication.getId().toString()), toDocument(publication));
+                    }
+                }
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read the id and version of every indexed publication from their doc values, sorted by id. The version is -1
+     * for the documents indexed without version or without id doc values, so they are indexed again.
+     */
+    private IndexedVersions readIndexedVersions() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                IndexedVersions indexedVersions = new IndexedVersions(searcher.getIndexReader().numDocs());
+                for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                    LeafReader reader = leaf.reader();
+                    Bits liveDocs = reader.getLiveDocs();
+                    NumericDocValues docIds = DocValues.getNumeric(reader, ID_FIELD);
+                    NumericDocValues docVersions = DocValues.getNumeric(reader, VERSION_FIELD);
+                    for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                        if (liveDocs == null || liveDocs.get(doc)) {
+                            if (docIds.advanceExact(doc)) {
+                                indexedVersions.add(docIds.longValue(),
+                                    docVersions.advanceExact(doc) ? docVersions.longValue() : -1L);
+                            } else {
+                                // Indexed before the ids had doc values
+                                indexedVersions.add(Long.parseLong(reader.document(doc).get(ID_FIELD)), -1L);
+                            }
+                        }
+                    }
+                }
+                indexedVersions.sort();
+                return indexedVersions;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the database.
+     */
+    public synchronized void reindexAll() {
+        try {
+            indexWriter.deleteAll();
+            Pageable pageable = new PageRequest(0, REINDEX_PAGE_SIZE, Sort.Direction.ASC, "id");
+            Page<Publication> page;
+            do {
+                page = publicationRepository.findAll(pageable);
+                for (Publication publication : page) {
+                    indexWriter.addDocument(toDocument(publication));
+                }
+                pageable = pageable.next();
+            } while (page.hasNext());
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add or replace a publication in the index.
+     *
+     * @param publication the publication to index
+     */
+    public synchronized void index(Publication publication) {
+        log.debug("Request to index Publication : {}", publication.getId());
+        try {
+            indexWriter.updateDocument(new Term(ID_FIELD, publication.getId().toString()), toDocument(publication));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add or replace publications in the index, refreshing the searches once for all of them.
+     *
+     * @param publications the publications to index
+     */
+    public synchronized void indexAll(Collection<Publication> publications) {
+        log.debug("Request to index {} Publications", publications.size());
+        try {
+            for (Publication publication : publications) {
+                indexWriter.updateDocument(new Term(ID_FIELD, publication.getId().toString()), toDocument(publication));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Remove a publication from the index.
+     *
+     * @param id the id of the publication to remove
+     */
+    public synchronized void delete(Long id) {
+        log.debug("Request to remove Publication : {} from the index", id);
+        try {
+            indexWriter.deleteDocuments(new Term(ID_FIELD, id.toString()));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Search the publications matching a query, most relevant first.
+     * <p>
+     * The query uses the simple query syntax: terms are all required, and "quoted phrases", prefix*,
+     * -exclusions and | alternatives are supported. The sort of the pagination information is ignored.
+     *
+     * @param query the query
+     * @param pageable the pagination information
+     * @return the page of matching publication ids
+     * @throws IllegalArgumentException if the page ends after the {@value #MAX_RESULT_WINDOW} first results
+     */
+    public Page<Long> search(String query, Pageable pageable) {
+        log.debug("Request to search for a page of Publications for query {}", query);
+        if (!isInResultWindow(pageable)) {
+            throw new IllegalArgumentException("Only the " + MAX_RESULT_WINDOW + " first results can be paged through");
+        }
+        Map<String, Float> weights = new HashMap<>();
+        weights.put(TITLE_FIELD, 2f);
+        weights.put(TEXT_FIELD, 1f);
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, weights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query parsedQuery = parser.parse(query);
+        if (parsedQuery == null) {
+            // Only stop words or operators
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        Query rankedQuery = new FunctionScoreQuery(parsedQuery, new RecencyBoost(System.currentTimeMillis()));
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(rankedQuery, pageable.getOffset() + pageable.getPageSize());
+                List<Long> ids = new ArrayList<>();
+                ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+                for (int i = pageable.getOffset(); i < scoreDocs.length; i++) {
+                    ids.add(Long.valueOf(searcher.doc(scoreDocs[i].doc).get(ID_FIELD)));
+                }
+                return new PageImpl<>(ids, pageable, topDocs.totalHits);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check if a page ends within the {@value #MAX_RESULT_WINDOW} first results.
+     *
+     * @param pageable the pagination information
+     * @return true if the page can be searched
+     */
+    public static boolean isInResultWindow(Pageable pageable) {
+        // Computed in long, as the int offset of a large page overflows
+        return ((long) pageable.getPageNumber() + 1) * pageable.getPageSize() <= MAX_RESULT_WINDOW;
+    }
+
+    /**
+     * Commit the pending changes of the index, so they survive a restart.
+     * <p>
+     * Searches don't need commits, they see the changes as soon as they are indexed.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void commit() throws IOException {
+        if (indexWriter.hasUncommittedChanges()) {
+            indexWriter.commit();
+        }
+    }
+
+    private Document toDocument(Publication publication) {
+        Document document = new Document();
+        document.add(new StringField(ID_FIELD, publication.getId().toString(), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_FIELD, publication.getId()));
+        document.add(new TextField(TITLE_FIELD, publication.getTitle(), Field.Store.NO));
+        document.add(new TextField(TEXT_FIELD, publication.getText(), Field.Store.NO));
+        document.add(new NumericDocValuesField(DATE_FIELD, publication.getPublicationDate().toInstant().toEpochMilli()));
+        if (publication.getVersion() != null) {
+            document.add(new NumericDocValuesField(VERSION_FIELD, publication.getVersion()));
+        }
+        return document;
+    }
+
+    /**
+     * The ids and versions of the indexed publications, in two parallel arrays.
+     */
+    private static final class IndexedVersions {
+
+        private final long[] ids;
+
+        private final long[] versions;
+
+        private int size;
+
+        IndexedVersions(int capacity) {
+            this.ids = new long[capacity];
+            this.versions = new long[capacity];
+        }
+
+        void add(long id, long version) {
+            ids[size] = id;
+            versions[size++] = version;
+        }
+
+        void sort() {
+            new InPlaceMergeSorter() {
+
+                @Override
+                protected int compare(int i, int j) {
+                    return Long.compare(ids[i], ids[j]);
+                }
+
+                @Override
+                protected void swap(int i, int j) {
+                    long id = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = id;
+                    long version = versions[i];
+                    versions[i] = versions[j];
+                    versions[j] = version;
+                }
+            }.sort(0, size);
+        }
+    }
+
+    /**
+     * Multiplies the relevance score by a recency factor, from 2 for a publication of the day down to 1
+     * for old ones: the bonus is halved after {@value #HALF_LIFE_DAYS} days.
+     */
+    private static final class RecencyBoost extends DoubleValuesSource {
+
+        private static final double HALF_LIFE_DAYS = 30;
+
+        private static final double MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+        private final long now;
+
+        RecencyBoost(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public DoubleValues getValues(LeafReaderContext context, DoubleValues scores) throws IOException {
+            NumericDocValues dates = DocValues.getNumeric(context.reader(), DATE_FIELD);
+            return new DoubleValues() {
+
+                private boolean hasDate;
+
+                @Override
+                public double doubleValue() throws IOException {
+                    double bonus = 0;
+                    if (hasDate) {
+                        double ageInDays = Math.max(0, now - dates.longValue()) / MILLIS_PER_DAY;
+                        bonus = 1 / (1 + ageInDays / HALF_LIFE_DAYS);
+                    }
+                    return scores.doubleValue() * (1 + bonus);
+                }
+
+                @Override
+                public boolean advanceExact(int doc) throws IOException {
+                    hasDate = dates.advanceExact(doc);
+                    return scores.advanceExact(doc);
+                }
+            };
+        }
+
+        @Override
+        public boolean needsScores() {
+            return true;
+        }
+
+        @Override
+        public DoubleValuesSource rewrite(IndexSearcher searcher) {
+            return this;
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext context) {
+            // The boost depends on the time of the query
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RecencyBoost && ((RecencyBoost) o).now == now;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(now);
+        }
+
+        @Override
+        public String toString() {
+            return "RecencyBoost(" + now + ")";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.invizible.service;
+
+import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.Rubric;
+import com.github.invizible.domain.User;
+import com.github.invizible.repository.PublicationRepository;
+import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.repository.UserRepository;
+import com.github.invizible.web.rest.errors.BadRequestAlertException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service for updating publications, with an optimistic lock on their version.
+ * <p>
+ * The publication is loaded, from the second level cache when it is there, and the changed fields of the request are
+ * applied to it, instead of merging the request: the author and the rubrics of the request, which may only hold their
+ * ids, are only loaded when they changed. The update is a regular flush, so its version is checked by Hibernate,
+ * the Hibernate events clear the caches depending on the publication, and the cache regions of the publications
+ * are updated instead of being emptied as by a bulk update.
+ * <p>
+ * As the rubrics are mapped eagerly, loading the publication also loads its rubrics, even for an edit of its text
+ * only: from the second level cache when they are there, else with the publication in a single query. This costs
+ * less than emptying the cache regions of all the publications on each edit, as the bulk update did.
+ */
+@Service
+@Transactional
+public class PublicationUpdateService {
+
+    private final Logger log = LoggerFactory.getLogger(PublicationUpdateService.class);
+
+    private static final String ENTITY_NAME = "publication";
+
+    private final PublicationRepository publicationRepository;
+
+    private final RubricRepository rubricRepository;
+
+    private final UserRepository userRepository;
+
+    public PublicationUpdateService(PublicationRepository publicationRepository, RubricRepository rubricRepository,
+                                    UserRepository userRepository) {
+        this.publicationRepository = publicationRepository;
+        this.rubricRepository = rubricRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Update a publication, if it is still at its version.
+     *
+     * @param publication the publication to update, with the version it was read at
+     * @return the updated publication, as stored, with its new version
+     * @throws ObjectOptimisticLockingFailureException if the publication was updated or deleted since that version
+     * @throws BadRequestAlertException if the author or one of the rubrics doesn't exist
+     */
+    public Publication update(Publication publication) {
+        log.debug("Request to update Publication : {}", publication.getId());
+        Publication stored = publicationRepository.findOne(publication.getId());
+        if (stored == null || !stored.getVersion().equals(publication.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Publication.class, publication.getId());
+        }
+        stored.setTitle(publication.getTitle());
+        stored.setText(publication.getText());
+        stored.setPublicationDate(publication.getPublicationDate());
+        Long authorId = publication.getAuthor() == null ? null : publication.getAuthor().getId();
+        if (!Objects.equals(authorId, stored.getAuthor().getId())) {
+            User author = authorId == null ? null : userRepository.findOne(authorId);
+            if (author == null) {
+                throw new BadRequestAlertException("Unknown author: " + authorId, ENTITY_NAME, "authornotfound");
+            }
+            stored.setAuthor(author);
+        }
+        if (publication.getRubrics() == null) {
+            throw new BadRequestAlertException("The rubrics of a publication cannot be null", ENTITY_NAME, "rubricsnull");
+        }
+        Set<Long> rubricIds = rubricIds(publication.getRubrics());
+        if (!rubricIds.equals(rubricIds(stored.getRubrics()))) {
+            List<Rubric> rubrics = rubricIds.contains(null) ? null : rubricRepository.findAll(rubricIds);
+            if (rubrics == null || rubrics.size() != rubricIds.size()) {
+                throw new BadRequestAlertException("Unknown rubric in: " + rubricIds, ENTITY_NAME, "rubricnotfound");
+            }
+            stored.getRubrics().clear();
+            stored.getRubrics().addAll(rubrics);
+        }
+        // Flushed now, so that a stale version fails here and the returned version is the new one
+        publicationRepository.flush();
+        return stored;
+    }
+
+    private static Set<Long> rubricIds(Set<Rubric> rubrics) {
+        return rubrics.stream().map(rubric -> rubric == null ? null : rubric.getId()).collect(Collectors.toSet());
+    }
+}
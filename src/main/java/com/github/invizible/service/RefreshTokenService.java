@@ -0,0 +1,131 @@
+package com.github.invizible.service;
+
+import com.github.invizible.config.ApplicationProperties;
+import com.github.invizible.domain.RefreshToken;
+import com.github.invizible.domain.User;
+import com.github.invizible.repository.RefreshTokenRepository;
+import com.github.invizible.repository.UserRepository;
+import com.github.invizible.service.util.RandomUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Service for managing the refresh tokens, which give new access tokens without checking the password again.
+ * <p>
+ * A refresh token can only be used once: it is deleted when it is used, and a new one is given with the new
+ * access token. The tokens of a user are revoked when the password changes.
+ */
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final UserRepository userRepository;
+
+    private final ApplicationProperties applicationProperties;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               ApplicationProperties applicationProperties) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Create a refresh token for a user.
+     *
+     * @param login the login of the user
+     * @return the refresh token, which is not stored
+     */
+    public String createRefreshToken(String login) {
+        User user = userRepository.findOneByLogin(login)
+            .orElseThrow(() -> new IllegalArgumentException("User " + login + " was not found"));
+        String token = RandomUtil.generateRefreshToken();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUser(user);
+        refreshToken.setExpiresAt(Instant.now().plusSeconds(applicationProperties.getJwt().getRefreshTokenValidityInSeconds()));
+        refreshTokenRepository.save(refreshToken);
+        log.debug("Created a refresh token for User: {}", login);
+        return token;
+    }
+
+    /**
+     * Use a refresh token: the token is deleted, and the authentication of its user is returned.
+     *
+     * @param token the refresh token
+     * @return the authentication of the user, or empty if the token is unknown, expired or already used, or
+     * if the user is deactivated
+     */
+    public Optional<Authentication> useRefreshToken(String token) {
+        Optional<RefreshToken> refreshToken = refreshTokenRepository.findOneWithUserByTokenHash(hash(token));
+        if (!refreshToken.isPresent() || refreshTokenRepository.deleteOneById(refreshToken.get().getId()) == 0) {
+            return Optional.empty();
+        }
+        User user = refreshToken.get().getUser();
+        if (refreshToken.get().getExpiresAt().isBefore(Instant.now()) || !user.getActivated()) {
+            return Optional.empty();
+        }
+        List<GrantedAuthority> authorities = user.getAuthorities().stream()
+            .map(authority -> new SimpleGrantedAuthority(authority.getName()))
+            .collect(Collectors.toList());
+        return Optional.of(new UsernamePasswordAuthenticationToken(user.getLogin(), null, authorities));
+    }
+
+    /**
+     * Revoke a refresh token.
+     *
+     * @param token the refresh token
+     */
+    public void revokeRefreshToken(String token) {
+        refreshTokenRepository.deleteByTokenHash(hash(token));
+    }
+
+    /**
+     * Revoke all the refresh tokens of a user.
+     *
+     * @param user the user
+     */
+    public void revokeRefreshTokens(User user) {
+        int revoked = refreshTokenRepository.deleteAllByUser(user);
+        log.debug("Revoked {} refresh tokens of User: {}", revoked, user.getLogin());
+    }
+
+    /**
+     * Expired refresh tokens are deleted every day, at 02:00 (am).
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void removeExpiredRefreshTokens() {
+        int removed = refreshTokenRepository.deleteAllByExpiresAtBefore(Instant.now());
+        log.debug("Deleted {} expired refresh tokens", removed);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.invizible.service;
+
+import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.Rubric;
+import com.github.invizible.repository.PublicationRepository;
+import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.service.dto.RubricCatalogEntryDTO;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Service providing the rubric catalog: every rubric with its number of publications.
+ * <p>
+ * The counts are kept in memory. They are loaded with a single grouped query on first use, then updated
+ * from the Hibernate events of the Publication.rubrics collection once the transaction changing it is committed,
+ * so the catalog never counts the rows of publication_rubrics again. As the changes made on other nodes are not
+ * seen, the counts are also reconciled with the database every "application.rubric-catalog.reconcile-delay"
+ * milliseconds.
+ * <p>
+ * The changes committed while the counts are being loaded are replayed on the loaded counts before they replace
+ * the current ones, as the grouped query may not have seen them. A change committed just before the query
+ * started can then be counted twice, until the next reconciliation.
+ */
+@Service
+public class RubricCatalogService {
+
+    private static final String RUBRICS_ROLE = Publication.class.getName() + ".rubrics";
+
+    private final Logger log = LoggerFactory.getLogger(RubricCatalogService.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final RubricRepository rubricRepository;
+
+    private final PublicationRepository publicationRepository;
+
+    /**
+     * Number of publications of each rubric, or null when the counts must be loaded again.
+     */
+    private volatile Map<Long, AtomicLong> counts;
+
+    /**
+     * The loads of the counts in progress, which record the changes committed meanwhile. Guarded by this.
+     */
+    private final List<Load> loads = new ArrayList<>();
+
+    public RubricCatalogService(EntityManagerFactory entityManagerFactory, RubricRepository rubricRepository,
+                                PublicationRepository publicationRepository) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.rubricRepository = rubricRepository;
+        this.publicationRepository = publicationRepository;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        RubricsListener listener = new RubricsListener();
+        registry.appendListeners(EventType.PRE_COLLECTION_RECREATE, listener);
+        registry.appendListeners(EventType.PRE_COLLECTION_UPDATE, listener);
+        registry.appendListeners(EventType.PRE_COLLECTION_REMOVE, listener);
+    }
+
+    /**
+     * Get all the rubrics with their number of publications, ordered by name.
+     *
+     * @return the rubric catalog
+     */
+    public List<RubricCatalogEntryDTO> getCatalog() {
+        log.debug("Request to get the Rubric catalog");
+        Map<Long, AtomicLong> currentCounts = counts;
+        if (currentCounts == null) {
+            currentCounts = loadCounts();
+        }
+        Map<Long, AtomicLong> catalogCounts = currentCounts;
+        return rubricRepository.findAll().stream()
+            .map(rubric -> {
+                AtomicLong count = catalogCounts.get(rubric.getId());
+                return new RubricCatalogEntryDTO(rubric.getId(), rubric.getName(), count == null ? 0 : count.get());
+            })
+            .sorted(Comparator.comparing(RubricCatalogEntryDTO::getName))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Load the counts again from the database, if they have been requested at least once.
+     * <p>
+     * This is scheduled to get fired every "application.rubric-catalog.reconcile-delay" milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${application.rubric-catalog.reconcile-delay:300000}")
+    public void reconcile() {
+        if (counts != null) {
+            loadCounts();
+        }
+    }
+
+    private Map<Long, AtomicLong> loadCounts() {
+        Load load = new Load();
+        synchronized (this) {
+            loads.add(load);
+        }
+        Map<Long, AtomicLong> loadedCounts = new ConcurrentHashMap<>();
+        try {
+            for (Object[] count : publicationRepository.countByRubric()) {
+                loadedCounts.put((Long) count[0], new AtomicLong((Long) count[1]));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loads.remove(load);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            loads.remove(load);
+            load.changes.forEach(changes -> applyChanges(loadedCounts, changes));
+            if (!load.unknownChange) {
+                counts = loadedCounts;
+            }
+        }
+        log.debug("Publication counts of {} rubrics loaded, {} changes replayed", loadedCounts.size(), load.changes.size());
+        return loadedCounts;
+    }
+
+    private synchronized void committed(Map<Long, Long> changes) {
+        Map<Long, AtomicLong> currentCounts = counts;
+        if (currentCounts != null) {
+            applyChanges(currentCounts, changes);
+        }
+        loads.forEach(load -> load.changes.add(changes));
+    }
+
+    private synchronized void unknownChange() {
+        counts = null;
+        loads.forEach(load -> load.unknownChange = true);
+    }
+
+    private static void applyChanges(Map<Long, AtomicLong> counts, Map<Long, Long> changes) {
+        changes.forEach((rubricId, change) -> counts.computeIfAbsent(rubricId, id -> new AtomicLong()).addAndGet(change));
+    }
+
+    /**
+     * A collection being recreated has no role yet, so the role is read from the persister it is flushed with,
+     * or was loaded with when it is removed.
+     */
+    private static boolean isRubrics(AbstractCollectionEvent event) {
+        CollectionEntry entry = event.getSession().getPersistenceContext().getCollectionEntry(event.getCollection());
+        if (entry == null) {
+            return false;
+        }
+        CollectionPersister persister = entry.getCurrentPersister() != null ? entry.getCurrentPersister() :
+            entry.getLoadedPersister();
+        return persister != null && RUBRICS_ROLE.equals(persister.getRole());
+    }
+
+    /**
+     * The rubrics of a publication as they are in the database: the snapshot taken when the collection was loaded
+     * or last flushed, which holds each element of a set as a key and value.
+     */
+    private static Collection<?> storedRubrics(PersistentCollection collection) {
+        Serializable snapshot = collection.getStoredSnapshot();
+        return snapshot instanceof Map ? ((Map<?, ?>) snapshot).values() : null;
+    }
+
+    /**
+     * Compute the count changes of a flushed collection, and apply them once the transaction is committed.
+     */
+    private void countChanges(AbstractCollectionEvent event, Collection<?> storedRubrics, Object currentRubrics) {
+        if (storedRubrics == null || !(currentRubrics instanceof Collection)) {
+            log.debug("Unknown change of the rubrics of Publication : {}", event.getAffectedOwnerIdOrNull());
+            unknownChange();
+            return;
+        }
+        Map<Long, Long> changes = new HashMap<>();
+        for (Object rubric : storedRubrics) {
+            changes.merge(((Rubric) rubric).getId(), -1L, Long::sum);
+        }
+        for (Object rubric : (Collection<?>) currentRubrics) {
+            changes.merge(((Rubric) rubric).getId(), 1L, Long::sum);
+        }
+        changes.remove(null);
+        changes.values().removeIf(change -> change == 0);
+        if (!changes.isEmpty()) {
+            event.getSession().getActionQueue().registerProcess((success, session) -> {
+                if (success) {
+                    committed(changes);
+                }
+            });
+        }
+    }
+
+    /**
+     * A load of the counts in progress.
+     */
+    private static final class Load {
+
+        private final List<Map<Long, Long>> changes = new ArrayList<>();
+
+        private boolean unknownChange;
+    }
+
+    /**
+     * Listener of the Publication.rubrics collection. It isn't implemented by the service itself, so the service
+     * can still be proxied by class.
+     */
+    private class RubricsListener implements PreCollectionRecreateEventListener, PreCollectionUpdateEventListener,
+        PreCollectionRemoveEventListener {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void onPreRecreateCollection(PreCollectionRecreateEvent event) {
+            if (isRubrics(event)) {
+                countChanges(event, Collections.emptyList(), event.getCollection());
+            }
+        }
+
+        @Override
+        public void onPreUpdateCollection(PreCollectionUpdateEvent event) {
+            if (isRubrics(event)) {
+                countChanges(event, storedRubrics(event.getCollection()), event.getCollection());
+            }
+        }
+
+        @Override
+        public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+            if (isRubrics(event)) {
+                countChanges(event, storedRubrics(event.getCollection()), Collections.emptyList());
+            }
+        }
+    }
+}
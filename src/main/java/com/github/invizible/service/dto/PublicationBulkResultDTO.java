@@ -0,0 +1,67 @@
+package com.github.invizible.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the outcome of one item of a bulk publication import.
+ */
+public class PublicationBulkResultDTO {
+
+    private int index;
+
+    private Long id;
+
+    private List<String> errors = new ArrayList<>();
+
+    public PublicationBulkResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public PublicationBulkResultDTO(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the position of the item in the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the id of the created publication, or null if the item was rejected
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isCreated() {
+        return id != null;
+    }
+
+    @Override
+    public String toString() {
+        return "PublicationBulkResultDTO{" +
+            "index=" + index +
+            ", id=" + id +
+            ", errors=" + errors +
+            "}";
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.invizible.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A DTO representing a publication in a list, with an excerpt of its text instead of the full text.
+ */
+public class PublicationSummaryDTO {
+
+    /**
+     * Maximum length of the excerpt of the publication text.
+     */
+    public static final int EXCERPT_LENGTH = 150;
+
+    private Long id;
+
+    private String title;
+
+    private String excerpt;
+
+    private ZonedDateTime publicationDate;
+
+    private String authorLogin;
+
+    private Set<Long> rubricIds = new HashSet<>();
+
+    public PublicationSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * Constructor used by the JPQL constructor projection.
+     */
+    public PublicationSummaryDTO(Long id, String title, String excerpt, ZonedDateTime publicationDate, String authorLogin) {
+        this.id = id;
+        this.title = title;
+        this.excerpt = excerpt;
+        this.publicationDate = publicationDate;
+        this.authorLogin = authorLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public ZonedDateTime getPublicationDate() {
+        return publicationDate;
+    }
+
+    public void setPublicationDate(ZonedDateTime publicationDate) {
+        this.publicationDate = publicationDate;
+    }
+
+    public String getAuthorLogin() {
+        return authorLogin;
+    }
+
+    public void setAuthorLogin(String authorLogin) {
+        this.authorLogin = authorLogin;
+    }
+
+    public Set<Long> getRubricIds() {
+        return rubricIds;
+    }
+
+    public void setRubricIds(Set<Long> rubricIds) {
+        this.rubricIds = rubricIds;
+    }
+
+    @Override
+    public String toString() {
+        return "PublicationSummaryDTO{" +
+            "id=" + id +
+            ", title='" + title + '\'' +
+            ", excerpt='" + excerpt + '\'' +
+            ", publicationDate=" + publicationDate +
+            ", authorLogin='" + authorLogin + '\'' +
+            ", rubricIds=" + rubricIds +
+            "}";
+    }
+}
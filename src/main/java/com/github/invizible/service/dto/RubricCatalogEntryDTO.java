@@ -0,0 +1,56 @@
+package com.github.invizible.service.dto;
+
+/**
+ * A DTO representing a rubric of the catalog, with its number of publications.
+ */
+public class RubricCatalogEntryDTO {
+
+    private Long id;
+
+    private String name;
+
+    private long publicationCount;
+
+    public RubricCatalogEntryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RubricCatalogEntryDTO(Long id, String name, long publicationCount) {
+        this.id = id;
+        this.name = name;
+        this.publicationCount = publicationCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPublicationCount() {
+        return publicationCount;
+    }
+
+    public void setPublicationCount(long publicationCount) {
+        this.publicationCount = publicationCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RubricCatalogEntryDTO{" +
+            "id=" + id +
+            ", name='" + name + '\'' +
+            ", publicationCount=" + publicationCount +
+            "}";
+    }
+}
@@ -2,6 +2,9 @@ package com.github.invizible.service.util;
 
 import org.apache.commons.lang3.RandomStringUtils;
 
+import java.security.SecureRandom;
+import java.util.Base64;
+
 /**
  * Utility class for generating random Strings.
  */
@@ -9,6 +12,10 @@ public final class RandomUtil {
 
     private static final int DEF_COUNT = 20;
 
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
     private RandomUtil() {
     }
 
@@ -38,4 +45,15 @@ public final class RandomUtil {
     public static String generateResetKey() {
         return RandomStringUtils.randomNumeric(DEF_COUNT);
     }
+
+    /**
+     * Generate a refresh token, from a secure random generator as it is a long-lived credential.
+     *
+     * @return the generated refresh token
+     */
+    public static String generateRefreshToken() {
+        byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+        SECURE_RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
 }
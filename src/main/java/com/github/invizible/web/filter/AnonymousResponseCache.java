@@ -0,0 +1,87 @@
+package com.github.invizible.web.filter;
+
+import com.github.invizible.repository.PublicationGraphCache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the responses to the anonymous reads of the publications and rubrics, cleared when the publications,
+ * the rubrics or the users (the authors of the publications) change.
+ * <p>
+ * The changes made on other nodes are not seen: the responses cached here are only dropped when they expire, after
+ * the time to live of the anonymousResponses region, which should stay close to the Cache-Control max age.
+ *
+ * @see PublicationGraphCache
+ */
+@Component
+public class AnonymousResponseCache extends PublicationGraphCache {
+
+    public static final String CACHE_NAME = "anonymousResponses";
+
+    private static final long serialVersionUID = 1L;
+
+    public AnonymousResponseCache(EntityManagerFactory entityManagerFactory, CacheManager cacheManager) {
+        super(entityManagerFactory, cacheManager, CACHE_NAME);
+    }
+
+    /**
+     * Get a cached response.
+     *
+     * @param key the key of the response
+     * @return the response, or null if it isn't cached
+     */
+    public CachedResponse get(String key) {
+        Cache.ValueWrapper value = cache().get(key);
+        return value == null ? null : (CachedResponse) value.get();
+    }
+
+    /**
+     * Store a response, unless the cache was cleared since it started being built.
+     *
+     * @param key the key of the response
+     * @param response the response
+     * @param generation the generation when the response started being built
+     */
+    public void put(String key, CachedResponse response, long generation) {
+        super.put(key, response, generation);
+    }
+
+    /**
+     * A response stored in the cache: its body, content type, and the headers set by the controller.
+     */
+    public static class CachedResponse implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String contentType;
+
+        private final Map<String, List<String>> headers;
+
+        private final byte[] body;
+
+        public CachedResponse(String contentType, Map<String, List<String>> headers, byte[] body) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.github.invizible.web.filter;
+
+import com.github.invizible.config.ApplicationProperties;
+import com.github.invizible.web.filter.AnonymousResponseCache.CachedResponse;
+import com.github.invizible.web.rest.util.ETagUtil;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the anonymous GET requests from the {@link AnonymousResponseCache}.
+ * <p>
+ * These requests get the same response whatever the client, so the first response to a URI and query string is
+ * stored, with the headers set by the controller, and the next requests are answered without running the controller,
+ * the queries and the serialization. The response is streamed to the client while it is stored, and isn't stored
+ * once it grows over "application.response-cache.max-entry-size". Only the 200 (OK) responses are stored.
+ * <p>
+ * The anonymous 200 (OK) responses, and the 304 (Not Modified) ones served from the cache, are also given a public
+ * Cache-Control header, varying on the Authorization header. The export of the publications is never cached.
+ */
+public class AnonymousResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String EXPORT_URI = "/api/publications/export";
+
+    private final AnonymousResponseCache cache;
+
+    private final String cacheControl;
+
+    private final int maxEntrySize;
+
+    private final Meter hits;
+
+    private final Meter misses;
+
+    public AnonymousResponseCacheFilter(AnonymousResponseCache cache, ApplicationProperties.ResponseCache properties,
+                                        MetricRegistry metricRegistry) {
+        this.cache = cache;
+        this.cacheControl = "public, max-age=" + properties.getMaxAgeSeconds();
+        this.maxEntrySize = properties.getMaxEntrySize();
+        this.hits = metricRegistry.meter(MetricRegistry.name(AnonymousResponseCacheFilter.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(AnonymousResponseCacheFilter.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(AnonymousResponseCacheFilter.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || request.getHeader(HttpHeaders.AUTHORIZATION) != null
+            || EXPORT_URI.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String key = request.getQueryString() == null ? request.getRequestURI() :
+            request.getRequestURI() + "?" + request.getQueryString();
+        CachedResponse cachedResponse = cache.get(key);
+        if (cachedResponse != null) {
+            hits.mark();
+            write(cachedResponse, request, response);
+            return;
+        }
+        misses.mark();
+        long generation = cache.getGeneration();
+        CapturingResponseWrapper capturingResponse = new CapturingResponseWrapper(response, maxEntrySize, cacheControl);
+        filterChain.doFilter(request, capturingResponse);
+        CachedResponse capturedResponse = capturingResponse.getCapturedResponse();
+        if (capturedResponse != null) {
+            cache.put(key, capturedResponse, generation);
+        }
+    }
+
+    private void write(CachedResponse cachedResponse, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        cachedResponse.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        List<String> eTags = cachedResponse.getHeaders().get(HttpHeaders.ETAG);
+        if (eTags != null && ETagUtil.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTags.get(0))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cachedResponse.getContentType());
+        response.setContentLength(cachedResponse.getBody().length);
+        response.getOutputStream().write(cachedResponse.getBody());
+    }
+
+    /**
+     * Response wrapper keeping a copy of the body, up to the max size, and of the headers set through it. The
+     * Cache-Control and Vary headers are added when the body starts being written, if the response can be cached.
+     */
+    private static final class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+        private final int maxSize;
+
+        private final String cacheControl;
+
+        private boolean cacheHeadersChecked;
+
+        private final Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private ServletOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        CapturingResponseWrapper(HttpServletResponse response, int maxSize, String cacheControl) {
+            super(response);
+            this.maxSize = maxSize;
+            this.cacheControl = cacheControl;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            super.setHeader(name, value);
+            List<String> values = new ArrayList<>();
+            values.add(value);
+            headers.put(name, values);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            super.addHeader(name, value);
+            headers.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            setHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            addHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            HttpHeaders formatted = new HttpHeaders();
+            formatted.setDate(name, date);
+            setHeader(name, formatted.getFirst(name));
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            HttpHeaders formatted = new HttpHeaders();
+            formatted.setDate(name, date);
+            addHeader(name, formatted.getFirst(name));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addCacheHeaders();
+            if (outputStream == null) {
+                outputStream = new CapturingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addCacheHeaders();
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        /**
+         * Add the headers letting the clients cache the response, once its status and headers are known. They are
+         * not captured, as they are added again when a cached response is written back.
+         */
+        private void addCacheHeaders() {
+            if (cacheHeadersChecked) {
+                return;
+            }
+            cacheHeadersChecked = true;
+            if (isCacheable() && !isCommitted()) {
+                super.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+            }
+        }
+
+        private boolean isCacheable() {
+            return getStatus() == HttpServletResponse.SC_OK && !headers.containsKey(HttpHeaders.SET_COOKIE);
+        }
+
+        /**
+         * @return the response to cache, or null if it can't be cached
+         */
+        CachedResponse getCapturedResponse() {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (body == null || !isCacheable()) {
+                return null;
+            }
+            // The content type and length are set apart when the response is written back
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return new CachedResponse(getContentType(), headers, body.toByteArray());
+        }
+
+        private void capture(byte[] bytes, int offset, int length) {
+            if (body != null) {
+                if (body.size() + length > maxSize) {
+                    body = null;
+                } else {
+                    body.write(bytes, offset, length);
+                }
+            }
+        }
+
+        private final class CapturingOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream delegate;
+
+            private CapturingOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                delegate.write(b);
+                capture(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                delegate.write(bytes, offset, length);
+                capture(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+    }
+}
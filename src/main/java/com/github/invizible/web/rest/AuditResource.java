@@ -7,11 +7,13 @@ import io.github.jhipster.web.util.ResponseUtil;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
@@ -33,10 +35,18 @@ public class AuditResource {
      * GET /audits : get a page of AuditEvents.
      *
      * @param pageable the pagination information
+     * @param count false to skip the exact count of AuditEvents, and use an approximate one instead
      * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
      */
     @GetMapping
-    public ResponseEntity<List<AuditEvent>> getAll(Pageable pageable) {
+    public ResponseEntity<List<AuditEvent>> getAll(Pageable pageable,
+        @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        if (!count) {
+            Slice<AuditEvent> slice = auditEventService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice,
+                auditEventService.countApproximately(), "/management/audits?count=false");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<AuditEvent> page = auditEventService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
@@ -48,18 +58,25 @@ public class AuditResource {
      * @param fromDate the start of the time period of AuditEvents to get
      * @param toDate the end of the time period of AuditEvents to get
      * @param pageable the pagination information
+     * @param count false to skip the count of AuditEvents, no total count is then returned
      * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
      */
     @GetMapping(params = {"fromDate", "toDate"})
     public ResponseEntity<List<AuditEvent>> getByDates(
         @RequestParam(value = "fromDate") LocalDate fromDate,
         @RequestParam(value = "toDate") LocalDate toDate,
-        Pageable pageable) {
+        Pageable pageable,
+        @RequestParam(value = "count", defaultValue = "true") boolean count) {
 
-        Page<AuditEvent> page = auditEventService.findByDates(
-            fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant(),
-            toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant(),
-            pageable);
+        Instant from = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Instant to = toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant();
+        if (!count) {
+            Slice<AuditEvent> slice = auditEventService.findSliceByDates(from, to, pageable);
+            HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice,
+                "/management/audits?fromDate=" + fromDate + "&toDate=" + toDate + "&count=false");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        Page<AuditEvent> page = auditEventService.findByDates(from, to, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
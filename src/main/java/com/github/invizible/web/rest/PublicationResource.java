@@ -1,30 +1,58 @@
 package com.github.invizible.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.github.invizible.config.ApplicationProperties;
 import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.User;
 
+import com.github.invizible.repository.PublicationFeedCache;
 import com.github.invizible.repository.PublicationRepository;
 import com.github.invizible.repository.UserRepository;
+import com.github.invizible.security.AuthoritiesConstants;
 import com.github.invizible.security.SecurityUtils;
+import com.github.invizible.service.ApproximateCountService;
+import com.github.invizible.service.PublicationBulkService;
+import com.github.invizible.service.PublicationExportService;
+import com.github.invizible.service.PublicationSearchService;
+import com.github.invizible.service.PublicationUpdateService;
+import com.github.invizible.service.dto.PublicationBulkResultDTO;
+import com.github.invizible.service.dto.PublicationSummaryDTO;
 import com.github.invizible.web.rest.errors.BadRequestAlertException;
+import com.github.invizible.web.rest.errors.InternalServerErrorException;
+import com.github.invizible.web.rest.errors.PreconditionFailedException;
+import com.github.invizible.web.rest.util.ETagUtil;
 import com.github.invizible.web.rest.util.HeaderUtil;
+import com.github.invizible.web.rest.util.KeysetCursor;
 import com.github.invizible.web.rest.util.PaginationUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Publication.
@@ -37,12 +65,43 @@ public class PublicationResource {
 
     private static final String ENTITY_NAME = "publication";
 
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private static final String NDJSON_CONTENT_TYPE = NDJSON_MEDIA_TYPE + ";charset=UTF-8";
+
     private final PublicationRepository publicationRepository;
     private final UserRepository userRepository;
 
-    public PublicationResource(PublicationRepository publicationRepository, UserRepository userRepository) {
+    private final ApproximateCountService approximateCountService;
+
+    private final PublicationFeedCache publicationFeedCache;
+
+    private final PublicationSearchService publicationSearchService;
+
+    private final PublicationBulkService publicationBulkService;
+
+    private final PublicationExportService publicationExportService;
+
+    private final PublicationUpdateService publicationUpdateService;
+
+    private final int feedCachedPages;
+
+    public PublicationResource(PublicationRepository publicationRepository, UserRepository userRepository,
+                               ApproximateCountService approximateCountService, PublicationFeedCache publicationFeedCache,
+                               PublicationSearchService publicationSearchService,
+                               PublicationBulkService publicationBulkService,
+                               PublicationExportService publicationExportService,
+                               PublicationUpdateService publicationUpdateService,
+                               ApplicationProperties applicationProperties) {
         this.publicationRepository = publicationRepository;
         this.userRepository = userRepository;
+        this.approximateCountService = approximateCountService;
+        this.publicationFeedCache = publicationFeedCache;
+        this.publicationSearchService = publicationSearchService;
+        this.publicationBulkService = publicationBulkService;
+        this.publicationExportService = publicationExportService;
+        this.publicationUpdateService = publicationUpdateService;
+        this.feedCachedPages = applicationProperties.getFeed().getCachedPages();
     }
 
     /**
@@ -65,29 +124,109 @@ public class PublicationResource {
             .ifPresent(publication::setAuthor);
 
         Publication result = publicationRepository.save(publication);
+        publicationSearchService.index(result);
         return ResponseEntity.created(new URI("/api/publications/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
             .body(result);
     }
 
+    /**
+     * POST  /publications/bulk : Create publications in bulk.
+     * <p>
+     * Each publication is validated on its own, and the valid ones are created even if others are rejected.
+     *
+     * @param publications the publications to create
+     * @return the ResponseEntity with status 200 (OK) and with body the result of each publication, in the order of the request
+     */
+    @PostMapping("/publications/bulk")
+    @Timed
+    public ResponseEntity<List<PublicationBulkResultDTO>> createPublications(@RequestBody List<Publication> publications) {
+        log.debug("REST request to save {} Publications in bulk", publications.size());
+        User author = SecurityUtils.getCurrentUserLogin()
+            .flatMap(userRepository::findOneByLogin)
+            .orElseThrow(() -> new InternalServerErrorException("Current user login not found"));
+
+        List<PublicationBulkResultDTO> results = publicationBulkService.createAll(publications, author);
+        long created = results.stream().filter(PublicationBulkResultDTO::isCreated).count();
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("A total of " + created + " publications are created", String.valueOf(created)))
+            .body(results);
+    }
+
+    /**
+     * POST  /publications/bulk : Create publications in bulk from an NDJSON stream, one publication per line.
+     * <p>
+     * The lines are read, created and answered chunk by chunk, so the import is never held in memory whatever its
+     * size. Each line is validated on its own, and a line which can't be read is rejected without affecting the others.
+     *
+     * @param request the request to read the publications from
+     * @param response the response to write the result of each line to, as NDJSON in the order of the request
+     * @throws IOException if the request can't be read or the response can't be written
+     */
+    @PostMapping(value = "/publications/bulk", consumes = NDJSON_MEDIA_TYPE)
+    @Timed
+    public void importPublications(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to save a stream of Publications in bulk");
+        User author = SecurityUtils.getCurrentUserLogin()
+            .flatMap(userRepository::findOneByLogin)
+            .orElseThrow(() -> new InternalServerErrorException("Current user login not found"));
+
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        publicationBulkService.importAll(request.getInputStream(), response.getOutputStream(), author);
+    }
+
     /**
      * PUT  /publications : Updates an existing publication.
+     * <p>
+     * The update is checked against the version of the publication given in the If-Match header, as returned in
+     * the ETag header, or else against the version given in the body. Without any version, the last write wins.
+     * The ETag of the response also covers the author and the rubrics, see {@link #getPublication(Long, String)}.
      *
      * @param publication the publication to update
+     * @param ifMatch the ETag of the version of the publication the update is based on, or "*" for any version
      * @return the ResponseEntity with status 200 (OK) and with body the updated publication,
      * or with status 400 (Bad Request) if the publication is not valid,
+     * or with status 404 (Not Found) if the publication doesn't exist and no version is given,
+     * or with status 409 (Conflict) if the publication was changed since the version given in the body,
+     * or with status 412 (Precondition Failed) if it was changed since the version given in the If-Match header,
      * or with status 500 (Internal Server Error) if the publication couldn't be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PutMapping("/publications")
     @Timed
-    public ResponseEntity<Publication> updatePublication(@Valid @RequestBody Publication publication) throws URISyntaxException {
+    public ResponseEntity<Publication> updatePublication(@Valid @RequestBody Publication publication,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update Publication : {}", publication);
         if (publication.getId() == null) {
             return createPublication(publication);
         }
-        Publication result = publicationRepository.save(publication);
+        Long version = publication.getVersion();
+        if (ifMatch != null) {
+            version = "*".equals(ifMatch.trim()) ? publicationRepository.findVersionById(publication.getId()) :
+                ETagUtil.toVersion(ifMatch);
+            if (version == null) {
+                throw new PreconditionFailedException("The publication doesn't match the If-Match header");
+            }
+        } else if (version == null) {
+            // Without a version, the publication would be seen as a new one: the last write wins
+            version = publicationRepository.findVersionById(publication.getId());
+            if (version == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+        }
+        publication.setVersion(version);
+        Publication result;
+        try {
+            result = publicationUpdateService.update(publication);
+        } catch (OptimisticLockingFailureException e) {
+            if (ifMatch == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("The publication was changed since the version of the If-Match header");
+        }
+        publicationSearchService.index(result);
         return ResponseEntity.ok()
+            .eTag(eTag(result))
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, publication.getId().toString()))
             .body(result);
     }
@@ -96,29 +235,140 @@ public class PublicationResource {
      * GET  /publications : get all the publications.
      *
      * @param pageable the pagination information
+     * @param count false to skip the exact count of publications, and use an approximate one instead
      * @return the ResponseEntity with status 200 (OK) and the list of publications in body
      */
     @GetMapping("/publications")
     @Timed
-    public ResponseEntity<List<Publication>> getAllPublications(Pageable pageable) {
+    public ResponseEntity<List<Publication>> getAllPublications(Pageable pageable,
+        @RequestParam(value = "count", defaultValue = "true") boolean count) {
         log.debug("REST request to get a page of Publications");
-        Page<Publication> page = publicationRepository.findAll(pageable);
+        if (!count) {
+            Slice<Publication> slice = publicationRepository.findSliceBy(pageable);
+            HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice,
+                approximateCountService.getCount("publication", publicationRepository::count), "/api/publications?count=false");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        Page<Publication> page;
+        if (pageable.getPageNumber() < feedCachedPages) {
+            // The leading pages get most of the traffic, they are read through the feed cache
+            page = publicationFeedCache.get(pageable, () -> findPageWithEagerRelationships(pageable));
+        } else {
+            page = findPageWithEagerRelationships(pageable);
+        }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/publications");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /publications?view=summary : get a page of publication summaries.
+     * <p>
+     * Summaries only hold an excerpt of the text, the author login and the rubric ids, so they are much
+     * lighter to load and to serialize than full publications. The summary view has no keyset mode: combined with
+     * the "after" parameter, neither this view nor the keyset one applies, and a plain page of publications is returned.
+     *
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of publication summaries in body
+     */
+    @GetMapping(value = "/publications", params = {"view=summary", "!after"})
+    @Timed
+    public ResponseEntity<List<PublicationSummaryDTO>> getAllPublicationSummaries(Pageable pageable) {
+        log.debug("REST request to get a page of Publication summaries");
+        Page<PublicationSummaryDTO> page = publicationRepository.findAllSummaries(pageable);
+        if (page.hasContent()) {
+            Map<Long, PublicationSummaryDTO> summaries = page.getContent().stream()
+                .collect(Collectors.toMap(PublicationSummaryDTO::getId, Function.identity()));
+            for (Object[] rubricId : publicationRepository.findRubricIds(summaries.keySet())) {
+                summaries.get(rubricId[0]).getRubricIds().add((Long) rubricId[1]);
+            }
+        }
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/publications?view=summary");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /publications?after=:cursor : get a page of the publication feed, newest first, using keyset pagination.
+     * <p>
+     * An empty cursor requests the first page; the cursor of the following page is given in the "next" Link header.
+     * Only the page size of the pagination information is used, as the order is fixed by the keyset.
+     *
+     * @param after the opaque cursor of the last publication already seen, or empty for the first page
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of publications in body,
+     * or with status 400 (Bad Request) if the cursor is invalid
+     */
+    @GetMapping(value = "/publications", params = {"after", "!view"})
+    @Timed
+    public ResponseEntity<List<Publication>> getPublicationsAfter(@RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get a keyset page of Publications after : {}", after);
+        Pageable keysetPageable = new PageRequest(0, pageable.getPageSize());
+        Slice<Publication> slice;
+        if (after.isEmpty()) {
+            slice = publicationRepository.findFeed(keysetPageable);
+        } else {
+            KeysetCursor cursor;
+            try {
+                cursor = KeysetCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid pagination cursor", ENTITY_NAME, "invalidcursor");
+            }
+            slice = publicationRepository.findFeedAfter(cursor.getDate(), cursor.getId(), keysetPageable);
+        }
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Publication last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = new KeysetCursor(last.getPublicationDate(), last.getId()).encode();
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(nextCursor, pageable.getPageSize(), "/api/publications");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /publications/export : export all the publications as NDJSON, one publication per line, ordered by id.
+     * <p>
+     * The publications are streamed from the database to the response, whatever their number. As a full scan of
+     * the publications, the export is restricted to the administrators.
+     *
+     * @param response the response to write the publications to
+     * @throws IOException if the response can't be written
+     */
+    @GetMapping("/publications/export")
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public void exportPublications(HttpServletResponse response) throws IOException {
+        log.debug("REST request to export all Publications");
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        publicationExportService.exportAll(response.getOutputStream());
+    }
+
     /**
      * GET  /publications/:id : get the "id" publication.
+     * <p>
+     * The ETag of the publication is built from its version and from the versions of its author and rubrics, which
+     * are serialized with it: when it matches the If-None-Match header, only the versions are read, and the
+     * publication is neither loaded nor serialized.
      *
      * @param id the id of the publication to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the publication, or with status 404 (Not Found)
+     * @param ifNoneMatch the ETags of the versions of the publication the client already has
+     * @return the ResponseEntity with status 200 (OK) and with body the publication, or with status 304 (Not Modified)
+     * if the client already has it, or with status 404 (Not Found)
      */
     @GetMapping("/publications/{id}")
     @Timed
-    public ResponseEntity<Publication> getPublication(@PathVariable Long id) {
+    public ResponseEntity<Publication> getPublication(@PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get Publication : {}", id);
+        if (ifNoneMatch != null) {
+            String eTag = findETag(id);
+            if (eTag != null && ETagUtil.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
         Publication publication = publicationRepository.findOneWithEagerRelationships(id);
-        return ResponseUtil.wrapOrNotFound(Optional.ofNullable(publication));
+        if (publication == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().eTag(eTag(publication)).body(publication);
     }
 
     /**
@@ -132,6 +382,87 @@ public class PublicationResource {
     public ResponseEntity<Void> deletePublication(@PathVariable Long id) {
         log.debug("REST request to delete Publication : {}", id);
         publicationRepository.delete(id);
+        publicationSearchService.delete(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
     }
+
+    /**
+     * SEARCH  /_search/publications?q=:query : search for the publications corresponding to the query.
+     *
+     * @param query the query of the publication search
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of matching publications in body, most relevant first,
+     * or with status 400 (Bad Request) if the page ends after the first results which can be paged through
+     */
+    @GetMapping("/_search/publications")
+    @Timed
+    public ResponseEntity<List<Publication>> searchPublications(@RequestParam("q") String query, Pageable pageable) {
+        log.debug("REST request to search for a page of Publications for query {}", query);
+        if (!PublicationSearchService.isInResultWindow(pageable)) {
+            throw new BadRequestAlertException("Only the " + PublicationSearchService.MAX_RESULT_WINDOW +
+                " first results can be paged through", ENTITY_NAME, "resultwindow");
+        }
+        Page<Publication> page = loadPageWithEagerRelationships(publicationSearchService.search(query, pageable), pageable);
+        HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders(query, page, "/api/_search/publications");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Load a page of publications with their author and rubrics: the page of ids is read first,
+     * then the publications and their relationships are fetched at once, instead of one select per row.
+     */
+    private Page<Publication> findPageWithEagerRelationships(Pageable pageable) {
+        return loadPageWithEagerRelationships(publicationRepository.findAllIds(pageable), pageable);
+    }
+
+    private Page<Publication> loadPageWithEagerRelationships(Page<Long> ids, Pageable pageable) {
+        if (!ids.hasContent()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, ids.getTotalElements());
+        }
+        Map<Long, Publication> publications = publicationRepository.findAllWithEagerRelationships(ids.getContent())
+            .stream()
+            .collect(Collectors.toMap(Publication::getId, Function.identity()));
+        // Keep the order of the page, skipping publications deleted in between
+        List<Publication> content = ids.getContent().stream()
+            .map(publications::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+
+    /**
+     * The ETag of a publication, from its version and the versions of the author and rubrics serialized with it.
+     */
+    private static String eTag(Publication publication) {
+        Map<String, Object> embeddedVersions = new HashMap<>();
+        embeddedVersions.put("author", publication.getAuthor() == null ? null :
+            toMillis(publication.getAuthor().getLastModifiedDate()));
+        publication.getRubrics().forEach(rubric -> embeddedVersions.put("rubric:" + rubric.getId(), rubric.getVersion()));
+        return ETagUtil.fromVersion(publication.getVersion(), embeddedVersions);
+    }
+
+    /**
+     * The ETag of a publication, read without loading it, or null if there is no such publication.
+     */
+    private String findETag(Long id) {
+        List<Object[]> versions = publicationRepository.findVersionsById(id);
+        if (versions.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> embeddedVersions = new HashMap<>();
+        embeddedVersions.put("author", toMillis((Instant) versions.get(0)[1]));
+        for (Object[] rubricVersion : versions) {
+            if (rubricVersion[2] != null) {
+                embeddedVersions.put("rubric:" + rubricVersion[2], rubricVersion[3]);
+            }
+        }
+        return ETagUtil.fromVersion((Long) versions.get(0)[0], embeddedVersions);
+    }
+
+    /**
+     * The dates are compared to the millisecond, as an entity still in memory can be more precise than the database.
+     */
+    private static Long toMillis(Instant date) {
+        return date == null ? null : date.toEpochMilli();
+    }
 }
@@ -1,14 +1,26 @@
 package com.github.invizible.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.github.invizible.domain.Publication;
 import com.github.invizible.domain.Rubric;
 
+import com.github.invizible.repository.PublicationRepository;
 import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.service.RubricCatalogService;
+import com.github.invizible.service.dto.RubricCatalogEntryDTO;
 import com.github.invizible.web.rest.errors.BadRequestAlertException;
+import com.github.invizible.web.rest.util.ETagUtil;
 import com.github.invizible.web.rest.util.HeaderUtil;
+import com.github.invizible.web.rest.util.KeysetCursor;
+import com.github.invizible.web.rest.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +30,7 @@ import java.net.URISyntaxException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Rubric.
@@ -32,8 +45,15 @@ public class RubricResource {
 
     private final RubricRepository rubricRepository;
 
-    public RubricResource(RubricRepository rubricRepository) {
+    private final PublicationRepository publicationRepository;
+
+    private final RubricCatalogService rubricCatalogService;
+
+    public RubricResource(RubricRepository rubricRepository, PublicationRepository publicationRepository,
+                          RubricCatalogService rubricCatalogService) {
         this.rubricRepository = rubricRepository;
+        this.publicationRepository = publicationRepository;
+        this.rubricCatalogService = rubricCatalogService;
     }
 
     /**
@@ -62,6 +82,7 @@ public class RubricResource {
      * @param rubric the rubric to update
      * @return the ResponseEntity with status 200 (OK) and with body the updated rubric,
      * or with status 400 (Bad Request) if the rubric is not valid,
+     * or with status 404 (Not Found) if the rubric doesn't exist and no version is given,
      * or with status 500 (Internal Server Error) if the rubric couldn't be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -72,6 +93,14 @@ public class RubricResource {
         if (rubric.getId() == null) {
             return createRubric(rubric);
         }
+        if (rubric.getVersion() == null) {
+            // Without a version, the rubric would be seen as a new one: the last write wins
+            Long version = rubricRepository.findVersionById(rubric.getId());
+            if (version == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            rubric.setVersion(version);
+        }
         Rubric result = rubricRepository.save(rubric);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, rubric.getId().toString()))
@@ -80,15 +109,41 @@ public class RubricResource {
 
     /**
      * GET  /rubrics : get all the rubrics.
+     * <p>
+     * The rubrics are read from the query cache, and their ETag is computed from their ids and versions, so
+     * when it matches the If-None-Match header the list isn't serialized.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of rubrics in body
+     * @param ifNoneMatch the ETags of the lists of rubrics the client already has
+     * @return the ResponseEntity with status 200 (OK) and the list of rubrics in body, or with status 304 (Not Modified)
+     * if the client already has it
      */
     @GetMapping("/rubrics")
     @Timed
-    public List<Rubric> getAllRubrics() {
+    public ResponseEntity<List<Rubric>> getAllRubrics(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get all Rubrics");
-        return rubricRepository.findAll();
+        List<Rubric> rubrics = rubricRepository.findAll();
+        String eTag = ETagUtil.fromVersions(rubrics.stream().collect(Collectors.toMap(Rubric::getId, Rubric::getVersion)));
+        if (ETagUtil.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
         }
+        return ResponseEntity.ok().eTag(eTag).body(rubrics);
+    }
+
+    /**
+     * GET  /rubrics/catalog : get all the rubrics with their number of publications, ordered by name.
+     * <p>
+     * The counts are maintained in memory, so they may lag behind the changes made on other nodes until
+     * they are reconciled with the database.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the rubric catalog in body
+     */
+    @GetMapping("/rubrics/catalog")
+    @Timed
+    public List<RubricCatalogEntryDTO> getRubricCatalog() {
+        log.debug("REST request to get the Rubric catalog");
+        return rubricCatalogService.getCatalog();
+    }
 
     /**
      * GET  /rubrics/:id : get the "id" rubric.
@@ -104,6 +159,48 @@ public class RubricResource {
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(rubric));
     }
 
+    /**
+     * GET  /rubrics/:id/publications : get a page of the publications of the "id" rubric, newest first, using keyset pagination.
+     * <p>
+     * The cursor of the following page is given in the "next" Link header.
+     * Only the page size of the pagination information is used, as the order is fixed by the keyset.
+     *
+     * @param id the id of the rubric
+     * @param after the opaque cursor of the last publication already seen, or none for the first page
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of publications in body,
+     * or with status 400 (Bad Request) if the cursor is invalid, or with status 404 (Not Found)
+     */
+    @GetMapping("/rubrics/{id}/publications")
+    @Timed
+    public ResponseEntity<List<Publication>> getRubricPublications(@PathVariable Long id,
+        @RequestParam(value = "after", required = false) String after, Pageable pageable) {
+        log.debug("REST request to get a keyset page of the Publications of Rubric : {} after : {}", id, after);
+        if (rubricRepository.findOne(id) == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Pageable keysetPageable = new PageRequest(0, pageable.getPageSize());
+        Slice<Publication> slice;
+        if (after == null || after.isEmpty()) {
+            slice = publicationRepository.findByRubric(id, keysetPageable);
+        } else {
+            KeysetCursor cursor;
+            try {
+                cursor = KeysetCursor.decodeId(after);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid pagination cursor", ENTITY_NAME, "invalidcursor");
+            }
+            slice = publicationRepository.findByRubricAfter(id, cursor.getId(), keysetPageable);
+        }
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            nextCursor = KeysetCursor.ofId(slice.getContent().get(slice.getNumberOfElements() - 1).getId()).encode();
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(nextCursor, pageable.getPageSize(),
+            "/api/rubrics/" + id + "/publications");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * DELETE  /rubrics/:id : delete the "id" rubric.
      *
@@ -1,8 +1,11 @@
 package com.github.invizible.web.rest;
 
+import com.github.invizible.security.LoginRateLimiter;
 import com.github.invizible.security.jwt.JWTConfigurer;
 import com.github.invizible.security.jwt.TokenProvider;
+import com.github.invizible.service.RefreshTokenService;
 import com.github.invizible.web.rest.vm.LoginVM;
+import com.github.invizible.web.rest.vm.RefreshTokenVM;
 
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -11,11 +14,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 /**
@@ -29,14 +34,25 @@ public class UserJWTController {
 
     private final AuthenticationManager authenticationManager;
 
-    public UserJWTController(TokenProvider tokenProvider, AuthenticationManager authenticationManager) {
+    private final LoginRateLimiter loginRateLimiter;
+
+    private final RefreshTokenService refreshTokenService;
+
+    public UserJWTController(TokenProvider tokenProvider, AuthenticationManager authenticationManager, LoginRateLimiter loginRateLimiter,
+                             RefreshTokenService refreshTokenService) {
         this.tokenProvider = tokenProvider;
         this.authenticationManager = authenticationManager;
+        this.loginRateLimiter = loginRateLimiter;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/authenticate")
     @Timed
-    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM) {
+    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM, HttpServletRequest request) {
+
+        // Throttled before the password is hashed, which is what the attempts cost. The remote address is the one
+        // of the client behind a trusted proxy, see server.use-forward-headers
+        loginRateLimiter.checkAttempt(loginVM.getUsername(), request.getRemoteAddr());
 
         UsernamePasswordAuthenticationToken authenticationToken =
             new UsernamePasswordAuthenticationToken(loginVM.getUsername(), loginVM.getPassword());
@@ -45,9 +61,41 @@ public class UserJWTController {
         SecurityContextHolder.getContext().setAuthentication(authentication);
         boolean rememberMe = (loginVM.isRememberMe() == null) ? false : loginVM.isRememberMe();
         String jwt = tokenProvider.createToken(authentication, rememberMe);
+        String refreshToken = refreshTokenService.createRefreshToken(authentication.getName());
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        return new ResponseEntity<>(new JWTToken(jwt, refreshToken), httpHeaders, HttpStatus.OK);
+    }
+
+    /**
+     * POST  /authenticate/refresh : get a new access token from a refresh token, without the password.
+     * The refresh token is used up, and a new one is returned with the access token.
+     *
+     * @param refreshTokenVM the refresh token
+     * @return the ResponseEntity with status 200 (OK) and the new tokens in body, or status 401 (Unauthorized)
+     * if the refresh token is not valid
+     */
+    @PostMapping("/authenticate/refresh")
+    @Timed
+    public ResponseEntity<JWTToken> refresh(@Valid @RequestBody RefreshTokenVM refreshTokenVM) {
+        Authentication authentication = refreshTokenService.useRefreshToken(refreshTokenVM.getRefreshToken())
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        String jwt = tokenProvider.createToken(authentication, false);
+        String refreshToken = refreshTokenService.createRefreshToken(authentication.getName());
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.add(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
-        return new ResponseEntity<>(new JWTToken(jwt), httpHeaders, HttpStatus.OK);
+        return new ResponseEntity<>(new JWTToken(jwt, refreshToken), httpHeaders, HttpStatus.OK);
+    }
+
+    /**
+     * POST  /authenticate/revoke : revoke a refresh token, when logging out.
+     *
+     * @param refreshTokenVM the refresh token
+     */
+    @PostMapping("/authenticate/revoke")
+    @Timed
+    public void revoke(@Valid @RequestBody RefreshTokenVM refreshTokenVM) {
+        refreshTokenService.revokeRefreshToken(refreshTokenVM.getRefreshToken());
     }
 
     /**
@@ -57,8 +105,11 @@ public class UserJWTController {
 
         private String idToken;
 
-        JWTToken(String idToken) {
+        private String refreshToken;
+
+        JWTToken(String idToken, String refreshToken) {
             this.idToken = idToken;
+            this.refreshToken = refreshToken;
         }
 
         @JsonProperty("id_token")
@@ -69,5 +120,14 @@ public class UserJWTController {
         void setIdToken(String idToken) {
             this.idToken = idToken;
         }
+
+        @JsonProperty("refresh_token")
+        String getRefreshToken() {
+            return refreshToken;
+        }
+
+        void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
     }
 }
@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -138,11 +139,19 @@ public class UserResource {
      * GET /users : get all users.
      *
      * @param pageable the pagination information
+     * @param count false to skip the exact count of users, and use an approximate one instead
      * @return the ResponseEntity with status 200 (OK) and with body all users
      */
     @GetMapping("/users")
     @Timed
-    public ResponseEntity<List<UserDTO>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllUsers(Pageable pageable,
+        @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        if (!count) {
+            final Slice<UserDTO> slice = userService.getManagedUsersSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice,
+                userService.countManagedUsersApproximately(), "/api/users?count=false");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         final Page<UserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/users");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
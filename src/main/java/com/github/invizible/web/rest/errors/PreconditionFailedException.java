@@ -0,0 +1,15 @@
+package com.github.invizible.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * Simple exception with a message, that returns a Precondition Failed code: the resource doesn't match the
+ * conditional headers of the request.
+ */
+public class PreconditionFailedException extends AbstractThrowableProblem {
+
+    public PreconditionFailedException(String message) {
+        super(ErrorConstants.DEFAULT_TYPE, message, Status.PRECONDITION_FAILED);
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.invizible.web.rest.util;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Utility class for the entity tags of the REST resources, used to answer the conditional requests.
+ */
+public final class ETagUtil {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private static final char VERSION_SEPARATOR = '-';
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Strong entity tag of a version of an entity serialized with other entities, which also changes when one
+     * of them changes. It starts with the version of the entity, so it can be given back in an If-Match header.
+     *
+     * @param version the version of the entity
+     * @param embeddedVersions the version of each embedded entity, by a key unique among them
+     * @return the entity tag, quoted
+     */
+    public static String fromVersion(Long version, Map<String, ?> embeddedVersions) {
+        StringBuilder content = new StringBuilder();
+        new TreeMap<>(embeddedVersions).forEach((key, embeddedVersion) ->
+            content.append(key).append(':').append(embeddedVersion).append(','));
+        return "\"" + version + VERSION_SEPARATOR +
+            DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Version of an entity given in an If-Match header: either the quoted version alone, or an entity tag built by
+     * {@link #fromVersion(Long, Map)}.
+     *
+     * @param ifMatch the value of the If-Match header
+     * @return the version, or null if the header doesn't hold a single strong entity tag of a version
+     */
+    public static Long toVersion(String ifMatch) {
+        String eTag = ifMatch.trim();
+        if (eTag.length() < 3 || eTag.charAt(0) != '"' || eTag.charAt(eTag.length() - 1) != '"') {
+            return null;
+        }
+        String version = eTag.substring(1, eTag.length() - 1);
+        int separator = version.indexOf(VERSION_SEPARATOR);
+        if (separator > 0) {
+            version = version.substring(0, separator);
+        }
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Strong entity tag of a list of entities, which changes whenever one of them is created, updated or deleted.
+     *
+     * @param versions the version of each entity, by id
+     * @return the entity tag, quoted
+     */
+    public static String fromVersions(Map<Long, Long> versions) {
+        StringBuilder content = new StringBuilder();
+        new TreeMap<>(versions).forEach((id, version) -> content.append(id).append(':').append(version).append(','));
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Check if an entity tag matches the value of an If-None-Match header, using the weak comparison of RFC 7232.
+     *
+     * @param ifNoneMatch the value of the If-None-Match header, or null if there is none
+     * @param eTag the current entity tag of the resource
+     * @return true if the client already has the current version of the resource
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+            if ("*".equals(candidate) || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
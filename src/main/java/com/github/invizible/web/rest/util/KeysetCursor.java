@@ -0,0 +1,100 @@
+package com.github.invizible.web.rest.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque cursor used for keyset (seek) pagination.
+ *
+ * <p>
+ * A cursor points at the last row of a page, identified by its date and id, or by its id only for the keysets
+ * ordered by id, so the next page can be fetched with a range predicate instead of an OFFSET: deep pages cost
+ * the same as the first one. Clients must treat the encoded token as opaque.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final ZonedDateTime date;
+
+    private final Long id;
+
+    public KeysetCursor(ZonedDateTime date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    /**
+     * Create a cursor on the id only, for a keyset ordered by id.
+     *
+     * @param id the id of the last row of the page
+     * @return the cursor
+     */
+    public static KeysetCursor ofId(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Encode this cursor as a URL-safe token.
+     *
+     * @return the opaque token
+     */
+    public String encode() {
+        String raw;
+        if (date == null) {
+            raw = id.toString();
+        } else {
+            Instant instant = date.toInstant();
+            raw = instant.getEpochSecond() + SEPARATOR + instant.getNano() + SEPARATOR + id;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token previously produced by {@link #encode()} for a cursor with a date.
+     *
+     * @param token the opaque token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new KeysetCursor(ZonedDateTime.ofInstant(instant, ZoneOffset.UTC), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Decode a token previously produced by {@link #encode()} for a cursor on the id only.
+     *
+     * @param token the opaque token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decodeId(String token) {
+        try {
+            return ofId(Long.valueOf(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+}
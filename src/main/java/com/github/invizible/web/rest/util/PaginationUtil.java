@@ -1,9 +1,13 @@
 package com.github.invizible.web.rest.util;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
 /**
  * Utility class for handling pagination.
  *
@@ -39,7 +43,130 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the pagination headers for a page of search results, keeping the query in the links.
+     *
+     * @param query the search query
+     * @param page the page of results
+     * @param baseUrl the base URL of the search resource
+     * @return the pagination headers
+     */
+    public static HttpHeaders generateSearchPaginationHttpHeaders(String query, Page page, String baseUrl) {
+        String escapedQuery;
+        try {
+            escapedQuery = URLEncoder.encode(query, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", Long.toString(page.getTotalElements()));
+        String link = "";
+        if ((page.getNumber() + 1) < page.getTotalPages()) {
+            link = "<" + generateUri(baseUrl, page.getNumber() + 1, page.getSize()) + "&q=" + escapedQuery + ">; rel=\"next\",";
+        }
+        // prev link
+        if ((page.getNumber()) > 0) {
+            link += "<" + generateUri(baseUrl, page.getNumber() - 1, page.getSize()) + "&q=" + escapedQuery + ">; rel=\"prev\",";
+        }
+        // last and first link
+        int lastPage = 0;
+        if (page.getTotalPages() > 0) {
+            lastPage = page.getTotalPages() - 1;
+        }
+        link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + "&q=" + escapedQuery + ">; rel=\"last\",";
+        link += "<" + generateUri(baseUrl, 0, page.getSize()) + "&q=" + escapedQuery + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Generate the pagination headers for a slice, which has no total count.
+     *
+     * <p>
+     * Neither the "X-Total-Count" header nor the "last" relation are emitted, as they would require counting all the rows.
+     *
+     * @param slice the slice
+     * @param baseUrl the base URL of the resource
+     * @return the pagination headers
+     */
+    public static HttpHeaders generateSlicePaginationHttpHeaders(Slice slice, String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, generateSliceLink(slice, baseUrl) +
+            "<" + generateUri(baseUrl, 0, slice.getSize()) + ">; rel=\"first\"");
+        return headers;
+    }
+
+    /**
+     * Generate the pagination headers for a slice, using an approximate total count.
+     *
+     * <p>
+     * The "X-Total-Count-Approximate" header is set so clients know the "X-Total-Count" header and the "last"
+     * relation are only estimates; the "next" relation is still exact.
+     *
+     * @param slice the slice
+     * @param approximateTotal the approximate total number of elements
+     * @param baseUrl the base URL of the resource
+     * @return the pagination headers
+     */
+    public static HttpHeaders generateSlicePaginationHttpHeaders(Slice slice, long approximateTotal, String baseUrl) {
+
+        // The estimate can't be lower than what has actually been read
+        long seenTotal = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+        long total = Math.max(approximateTotal, slice.hasNext() ? seenTotal + 1 : seenTotal);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", Long.toString(total));
+        headers.add("X-Total-Count-Approximate", "true");
+        int lastPage = 0;
+        if (total > 0 && slice.getSize() > 0) {
+            lastPage = (int) ((total - 1) / slice.getSize());
+        }
+        String link = generateSliceLink(slice, baseUrl);
+        link += "<" + generateUri(baseUrl, lastPage, slice.getSize()) + ">; rel=\"last\",";
+        link += "<" + generateUri(baseUrl, 0, slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Generate the Link header for a keyset (cursor based) page.
+     *
+     * <p>
+     * Keyset pages have no page numbers and no total count, so only the "next" and "first" relations are emitted.
+     *
+     * @param nextCursor the opaque cursor of the next page, or null if this is the last page
+     * @param size the page size
+     * @param baseUrl the base URL of the resource
+     * @return the pagination headers
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(String nextCursor, int size, String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (nextCursor != null) {
+            link = "<" + generateKeysetUri(baseUrl, nextCursor, size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, "", size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateSliceLink(Slice slice, String baseUrl) {
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateUri(baseUrl, slice.getNumber() + 1, slice.getSize()) + ">; rel=\"next\",";
+        }
+        if (slice.hasPrevious()) {
+            link += "<" + generateUri(baseUrl, slice.getNumber() - 1, slice.getSize()) + ">; rel=\"prev\",";
+        }
+        return link;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
+
+    private static String generateKeysetUri(String baseUrl, String cursor, int size) {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", cursor).queryParam("size", size).toUriString();
+    }
 }
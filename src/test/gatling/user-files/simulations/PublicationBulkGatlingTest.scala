@@ -0,0 +1,73 @@
+import _root_.io.gatling.core.scenario.Simulation
+import ch.qos.logback.classic.{Level, LoggerContext}
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import org.slf4j.LoggerFactory
+
+import scala.concurrent.duration._
+
+/**
+ * Insert throughput test for the Publication entity: creates "items" publications one by one, then as many in bulk.
+ *
+ * Run it before and after a change of the id allocation or of the JDBC batching, with the same "users",
+ * "items" and "repeat" system properties, and compare the publications created per second.
+ */
+class PublicationBulkGatlingTest extends Simulation {
+
+    val context: LoggerContext = LoggerFactory.getILoggerFactory.asInstanceOf[LoggerContext]
+    // Log all HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("TRACE"))
+    // Log failed HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("DEBUG"))
+
+    val baseURL = Option(System.getProperty("baseURL")) getOrElse """http://localhost:8080"""
+
+    val items = Integer.getInteger("items", 500)
+
+    val httpConf = http
+        .baseURL(baseURL)
+        .acceptHeader("*/*")
+        .acceptEncodingHeader("gzip, deflate")
+        .connectionHeader("keep-alive")
+
+    val headers_http_authentication = Map(
+        "Content-Type" -> """application/json""",
+        "Accept" -> """application/json"""
+    )
+
+    val headers_http_authenticated = Map(
+        "Accept" -> """application/json""",
+        "Authorization" -> "${access_token}"
+    )
+
+    val publication = """{"id":null, "title":"SAMPLE_TEXT", "text":"SAMPLE_TEXT", "publicationDate":"2020-01-01T00:00:00.000Z"}"""
+
+    val bulk = Seq.fill(items)(publication).mkString("[", ",", "]")
+
+    val scn = scenario("Test the Publication insert throughput")
+        .exec(http("Authentication")
+        .post("/api/authenticate")
+        .headers(headers_http_authentication)
+        .body(StringBody("""{"username":"admin", "password":"admin"}""")).asJSON
+        .check(header.get("Authorization").saveAs("access_token"))).exitHereIfFailed
+        .repeat(Integer.getInteger("repeat", 2)) {
+            repeat(items) {
+                exec(http("Create new publication")
+                .post("/api/publications")
+                .headers(headers_http_authenticated)
+                .body(StringBody(publication)).asJSON
+                .check(status.is(201)))
+            }
+            .exec(http("Create publications in bulk")
+            .post("/api/publications/bulk")
+            .headers(headers_http_authenticated)
+            .body(StringBody(bulk)).asJSON
+            .check(status.is(200)))
+        }
+
+    val users = scenario("Users").exec(scn)
+
+    setUp(
+        users.inject(rampUsers(Integer.getInteger("users", 10)) over (Integer.getInteger("ramp", 1) minutes))
+    ).protocols(httpConf)
+}
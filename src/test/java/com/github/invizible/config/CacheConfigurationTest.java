@@ -0,0 +1,98 @@
+package com.github.invizible.config;
+
+import com.codahale.metrics.MetricRegistry;
+import io.github.jhipster.config.JHipsterProperties;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.Duration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the CacheConfiguration class.
+ *
+ * @see CacheConfiguration
+ */
+public class CacheConfigurationTest {
+
+    private static final String SIZED_REGION = "com.github.invizible.domain.Publication";
+
+    private CacheConfiguration cacheConfiguration;
+
+    private CacheManager cacheManager;
+
+    @Before
+    public void setup() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getCache().getEhcache().setMaxEntries(100);
+        jHipsterProperties.getCache().getEhcache().setTimeToLiveSeconds(3600);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setHeapSizeMb(4);
+        region.setOffHeapSizeMb(32);
+        region.setTimeToLiveSeconds(600L);
+        applicationProperties.getCache().getRegions().put(SIZED_REGION, region);
+        cacheConfiguration = new CacheConfiguration(jHipsterProperties, applicationProperties, new MetricRegistry());
+        CachingProvider cachingProvider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        cacheManager = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(), getClass().getClassLoader());
+    }
+
+    @After
+    public void destroy() {
+        cacheManager.close();
+    }
+
+    @Test
+    public void testRegionSizedInEntries() {
+        org.ehcache.config.CacheConfiguration<?, ?> configuration = ehcacheConfiguration("usersByLogin", 3600);
+
+        SizedResourcePool heap = configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP);
+        assertThat(heap.getSize()).isEqualTo(100);
+        assertThat(heap.getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.OFFHEAP)).isNull();
+        assertThat(configuration.getExpiry().getExpiryForCreation(null, null)).isEqualTo(Duration.of(3600, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRegionSizedInMegabytes() {
+        org.ehcache.config.CacheConfiguration<?, ?> configuration = ehcacheConfiguration(SIZED_REGION, 3600);
+
+        ResourcePools resourcePools = configuration.getResourcePools();
+        SizedResourcePool heap = resourcePools.getPoolForResource(ResourceType.Core.HEAP);
+        assertThat(heap.getSize()).isEqualTo(4);
+        assertThat(heap.getUnit()).isEqualTo(MemoryUnit.MB);
+        SizedResourcePool offHeap = resourcePools.getPoolForResource(ResourceType.Core.OFFHEAP);
+        assertThat(offHeap.getSize()).isEqualTo(32);
+        assertThat(offHeap.getUnit()).isEqualTo(MemoryUnit.MB);
+        assertThat(configuration.getExpiry().getExpiryForCreation(null, null)).isEqualTo(Duration.of(600, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUpdateTimestampsRegionNeverExpires() {
+        org.ehcache.config.CacheConfiguration<?, ?> configuration =
+            ehcacheConfiguration(CacheConfiguration.UPDATE_TIMESTAMPS_REGION, 3600);
+
+        assertThat(configuration.getExpiry().getExpiryForCreation(null, null)).isEqualTo(Duration.INFINITE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private org.ehcache.config.CacheConfiguration<?, ?> ehcacheConfiguration(String cacheName, long timeToLiveSeconds) {
+        Eh107Configuration<Object, Object> configuration = cacheManager
+            .createCache(cacheName, cacheConfiguration.jcacheConfiguration(cacheName, timeToLiveSeconds))
+            .getConfiguration(Eh107Configuration.class);
+        return configuration.unwrap(org.ehcache.config.CacheRuntimeConfiguration.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.invizible.repository;
+
+import com.github.invizible.PublicationsApp;
+import com.github.invizible.config.Constants;
+import com.github.invizible.domain.Rubric;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the allocation of the entity ids from hibernate_sequence.
+ *
+ * @see Constants#SEQUENCE_ALLOCATION_SIZE
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PublicationsApp.class)
+@Transactional
+public class SequenceAllocationIntTest {
+
+    @Autowired
+    private RubricRepository rubricRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    public void sequenceIncrementMatchesAllocationSize() {
+        assertThat(sequenceColumn("increment")).isEqualTo(Constants.SEQUENCE_ALLOCATION_SIZE);
+    }
+
+    @Test
+    public void insertsReserveIdsInBlocks() {
+        long sequenceValueBefore = sequenceColumn("current_value");
+
+        int count = 2 * Constants.SEQUENCE_ALLOCATION_SIZE;
+        for (int i = 0; i < count; i++) {
+            rubricRepository.save(new Rubric().name("AAAAAAAAAA"));
+        }
+        em.flush();
+
+        // At most one call to the sequence per block of ids, plus one for the block already started
+        long sequenceCalls = (sequenceColumn("current_value") - sequenceValueBefore) / Constants.SEQUENCE_ALLOCATION_SIZE;
+        assertThat(sequenceCalls).isLessThanOrEqualTo(count / Constants.SEQUENCE_ALLOCATION_SIZE + 1);
+    }
+
+    private long sequenceColumn(String column) {
+        return ((Number) em.createNativeQuery("select " + column + " from information_schema.sequences " +
+            "where sequence_name = 'HIBERNATE_SEQUENCE'").getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.invizible.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Test class for the BoundedBCryptPasswordEncoder.
+ *
+ * @see BoundedBCryptPasswordEncoder
+ */
+public class BoundedBCryptPasswordEncoderUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private BoundedBCryptPasswordEncoder passwordEncoder;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        passwordEncoder = new BoundedBCryptPasswordEncoder(10, 1, 1, metricRegistry);
+    }
+
+    @After
+    public void destroy() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void testEncodeAndMatch() {
+        String encoded = passwordEncoder.encode("password");
+
+        assertThat(encoded).startsWith("$2a$10$");
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("wrong password", encoded)).isFalse();
+    }
+
+    @Test
+    public void testMatchOtherBCryptVersions() {
+        String encoded = passwordEncoder.encode("password").substring(4);
+
+        assertThat(passwordEncoder.matches("password", "$2b$" + encoded)).isTrue();
+        assertThat(passwordEncoder.matches("password", "$2y$" + encoded)).isTrue();
+        assertThat(passwordEncoder.matches("wrong password", "$2b$" + encoded)).isFalse();
+    }
+
+    @Test
+    public void testNeedsRehash() {
+        assertThat(passwordEncoder.needsRehash(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(passwordEncoder.needsRehash(new BCryptPasswordEncoder(10).encode("password"))).isFalse();
+        assertThat(passwordEncoder.needsRehash("$2b$04$" + new BCryptPasswordEncoder(4).encode("password").substring(7))).isTrue();
+        assertThat(passwordEncoder.needsRehash("$2y$10$" + new BCryptPasswordEncoder(10).encode("password").substring(7))).isFalse();
+        assertThat(passwordEncoder.needsRehash("not a bcrypt hash")).isFalse();
+        assertThat(passwordEncoder.needsRehash(null)).isFalse();
+    }
+
+    @Test
+    public void testEncodeAsync() throws Exception {
+        String encoded = passwordEncoder.encodeAsync("password").get();
+
+        assertThat(encoded).startsWith("$2a$10$");
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        MetricRegistry slowMetrics = new MetricRegistry();
+        BoundedBCryptPasswordEncoder encoder = new BoundedBCryptPasswordEncoder(12, 1, 1, slowMetrics);
+        Gauge<?> active = slowMetrics.getGauges().get("com.github.invizible.security.BoundedBCryptPasswordEncoder.active");
+        Gauge<?> queueSize = slowMetrics.getGauges().get("com.github.invizible.security.BoundedBCryptPasswordEncoder.queue.size");
+
+        Thread running = new Thread(() -> encoder.encode("running"));
+        running.start();
+        awaitValue(active, 1);
+        Thread queued = new Thread(() -> encoder.encode("queued"));
+        queued.start();
+        awaitValue(queueSize, 1);
+
+        try {
+            encoder.encode("rejected");
+            fail("the password should not be hashed while the queue is full");
+        } catch (PasswordHashingOverloadedException e) {
+            assertThat(slowMetrics.getMeters()
+                .get("com.github.invizible.security.BoundedBCryptPasswordEncoder.rejections").getCount()).isEqualTo(1);
+        } finally {
+            running.join();
+            queued.join();
+            encoder.destroy();
+        }
+    }
+
+    private static void awaitValue(Gauge<?> gauge, int value) throws InterruptedException {
+        for (int i = 0; i < 500 && !Integer.valueOf(value).equals(gauge.getValue()); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(gauge.getValue()).isEqualTo(value);
+    }
+}
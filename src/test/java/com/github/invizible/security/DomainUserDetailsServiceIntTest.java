@@ -3,21 +3,29 @@ package com.github.invizible.security;
 import com.github.invizible.PublicationsApp;
 import com.github.invizible.domain.User;
 import com.github.invizible.repository.UserRepository;
+import com.github.invizible.service.UserService;
+import com.github.invizible.service.dto.UserDTO;
 
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.Locale;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 /**
  * Test class for DomainUserDetailsService.
@@ -35,6 +43,7 @@ public class DomainUserDetailsServiceIntTest {
     private static final String USER_TWO_EMAIL = "test-user-two@localhost";
     private static final String USER_THREE_LOGIN = "test-user-three";
     private static final String USER_THREE_EMAIL = "test-user-three@localhost";
+    private static final String UNKNOWN_LOGIN = "test-user-unknown";
 
     @Autowired
     private UserRepository userRepository;
@@ -42,12 +51,27 @@ public class DomainUserDetailsServiceIntTest {
     @Autowired
     private UserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManager em;
+
     private User userOne;
     private User userTwo;
     private User userThree;
 
     @Before
     public void init() {
+        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_OR_EMAIL_CACHE).clear();
+        cacheManager.getCache(UserRepository.UNKNOWN_LOGINS_CACHE).clear();
+
         userOne = new User();
         userOne.setLogin(USER_ONE_LOGIN);
         userOne.setPassword(RandomStringUtils.random(60));
@@ -125,4 +149,79 @@ public class DomainUserDetailsServiceIntTest {
         domainUserDetailsService.loadUserByUsername(USER_THREE_LOGIN);
     }
 
+    @Test
+    @Transactional
+    public void assertThatUserIsLoadedWithASingleQuery() {
+        userRepository.flush();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        assertThat(userDetails.getUsername()).isEqualTo(USER_ONE_LOGIN);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatUnknownLoginIsCached() {
+        userRepository.flush();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(catchThrowable(() -> domainUserDetailsService.loadUserByUsername(UNKNOWN_LOGIN)))
+            .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        assertThat(catchThrowable(() -> domainUserDetailsService.loadUserByUsername(UNKNOWN_LOGIN)))
+            .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatRegisteredUserIsNoLongerUnknown() {
+        assertThat(catchThrowable(() -> domainUserDetailsService.loadUserByUsername(UNKNOWN_LOGIN)))
+            .isInstanceOf(UsernameNotFoundException.class);
+
+        UserDTO userDTO = new UserDTO();
+        userDTO.setLogin(UNKNOWN_LOGIN);
+        userDTO.setEmail(UNKNOWN_LOGIN + "@localhost");
+        userDTO.setLangKey("en");
+        userService.registerUser(userDTO, "password");
+        userRepository.flush();
+
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(UNKNOWN_LOGIN);
+        assertThat(userDetails.getUsername()).isEqualTo(UNKNOWN_LOGIN);
+    }
+
+    @Test
+    @Transactional
+    public void assertThatPasswordIsRehashed() {
+        String checkedPassword = userOne.getPassword();
+        userRepository.flush();
+
+        boolean updated = userDetailsPasswordService.updatePassword(USER_ONE_LOGIN, checkedPassword, "rehashed");
+
+        assertThat(updated).isTrue();
+        assertThat(userRepository.findOneByLogin(USER_ONE_LOGIN).get().getPassword()).isEqualTo("rehashed");
+    }
+
+    @Test
+    @Transactional
+    public void assertThatChangedPasswordIsNotRehashed() {
+        // The password is changed while the hash checked at login is re-hashed on the pool
+        String checkedPassword = userOne.getPassword();
+        userOne.setPassword("changed");
+        userRepository.flush();
+
+        boolean updated = userDetailsPasswordService.updatePassword(USER_ONE_LOGIN, checkedPassword, "rehashed");
+
+        assertThat(updated).isFalse();
+        assertThat(userRepository.findOneByLogin(USER_ONE_LOGIN).get().getPassword()).isEqualTo("changed");
+    }
 }
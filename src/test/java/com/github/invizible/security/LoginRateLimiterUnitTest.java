@@ -0,0 +1,154 @@
+package com.github.invizible.security;
+
+import com.github.invizible.config.ApplicationProperties;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Test class for the LoginRateLimiter.
+ *
+ * @see LoginRateLimiter
+ */
+public class LoginRateLimiterUnitTest {
+
+    private static final String PRINCIPAL_REJECTIONS = "com.github.invizible.security.LoginRateLimiter.principal.rejections";
+    private static final String PRINCIPAL_BUCKETS = "com.github.invizible.security.LoginRateLimiter.principal.buckets";
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private ApplicationProperties.LoginRateLimit loginRateLimit;
+
+    private MetricRegistry metricRegistry;
+
+    private LoginRateLimiter loginRateLimiter;
+
+    @Before
+    public void setup() {
+        loginRateLimit = new ApplicationProperties().getLoginRateLimit();
+        loginRateLimit.getPrincipal().setCapacity(3);
+        loginRateLimit.getPrincipal().setRefillPerMinute(6);
+        loginRateLimit.getAddress().setCapacity(5);
+        loginRateLimit.getAddress().setRefillPerMinute(60);
+        metricRegistry = new MetricRegistry();
+        loginRateLimiter = new LoginRateLimiter(loginRateLimit, metricRegistry, now::get);
+    }
+
+    @Test
+    public void testRejectAttemptsAboveCapacity() {
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("user", "10.0.0." + i);
+        }
+
+        Throwable thrown = catchThrowable(() -> loginRateLimiter.checkAttempt("USER", "10.0.0.3"));
+
+        assertThat(thrown).isInstanceOf(LoginRateLimitExceededException.class);
+        assertThat(((LoginRateLimitExceededException) thrown).getRetryAfterSeconds()).isEqualTo(10);
+        assertThat(metricRegistry.getMeters().get(PRINCIPAL_REJECTIONS).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefillOverTime() {
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("user", "10.0.0." + i);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        loginRateLimiter.checkAttempt("user", "10.0.0.3");
+
+        assertThat(catchThrowable(() -> loginRateLimiter.checkAttempt("user", "10.0.0.4")))
+            .isInstanceOf(LoginRateLimitExceededException.class);
+    }
+
+    @Test
+    public void testRejectAttemptsFromSameAddress() {
+        for (int i = 0; i < 5; i++) {
+            loginRateLimiter.checkAttempt("user" + i, "10.0.0.1");
+        }
+
+        Throwable thrown = catchThrowable(() -> loginRateLimiter.checkAttempt("user5", "10.0.0.1"));
+
+        assertThat(thrown).isInstanceOf(LoginRateLimitExceededException.class);
+        assertThat(((LoginRateLimitExceededException) thrown).getRetryAfterSeconds()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLockedOutUsernameDoesNotDrainAddress() {
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("user", "10.0.0.1");
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(catchThrowable(() -> loginRateLimiter.checkAttempt("user", "10.0.0.1")))
+                .isInstanceOf(LoginRateLimitExceededException.class);
+        }
+
+        // The rejected attempts gave their token back to the address
+        loginRateLimiter.checkAttempt("other-user", "10.0.0.1");
+        loginRateLimiter.checkAttempt("other-user", "10.0.0.1");
+        assertThat(catchThrowable(() -> loginRateLimiter.checkAttempt("third-user", "10.0.0.1")))
+            .isInstanceOf(LoginRateLimitExceededException.class);
+    }
+
+    @Test
+    public void testEvictIdleBuckets() {
+        loginRateLimiter.checkAttempt("user", "10.0.0.1");
+        loginRateLimiter.checkAttempt("other-user", "10.0.0.1");
+        assertThat(metricRegistry.getGauges().get(PRINCIPAL_BUCKETS).getValue()).isEqualTo(2);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        loginRateLimiter.checkAttempt("other-user", "10.0.0.1");
+        loginRateLimiter.evictIdleBuckets();
+
+        assertThat(metricRegistry.getGauges().get(PRINCIPAL_BUCKETS).getValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLimitNewKeysTogetherWhenAllBucketsAreBusy() {
+        loginRateLimit.setMaxBuckets(1);
+        loginRateLimiter = new LoginRateLimiter(loginRateLimit, new MetricRegistry(), now::get);
+        loginRateLimiter.checkAttempt("user", null);
+
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("other-user-" + i, null);
+        }
+
+        assertThat(catchThrowable(() -> loginRateLimiter.checkAttempt("other-user-3", null)))
+            .isInstanceOf(LoginRateLimitExceededException.class);
+    }
+
+    @Test
+    public void testEvictIdleBucketsForNewKeyWhenAllBucketsAreUsed() {
+        loginRateLimit.setMaxBuckets(1);
+        metricRegistry = new MetricRegistry();
+        loginRateLimiter = new LoginRateLimiter(loginRateLimit, metricRegistry, now::get);
+        loginRateLimiter.checkAttempt("user", null);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("other-user", null);
+        }
+
+        // The bucket of "other-user" replaced the idle one of "user", instead of the overflow bucket being used
+        assertThat(metricRegistry.getGauges().get(PRINCIPAL_BUCKETS).getValue()).isEqualTo(1);
+        loginRateLimiter.checkAttempt("third-user", null);
+        assertThat(catchThrowable(() -> loginRateLimiter.checkAttempt("other-user", null)))
+            .isInstanceOf(LoginRateLimitExceededException.class);
+    }
+
+    @Test
+    public void testDisabled() {
+        loginRateLimit.setEnabled(false);
+        loginRateLimiter = new LoginRateLimiter(loginRateLimit, new MetricRegistry(), now::get);
+
+        for (int i = 0; i < 10; i++) {
+            loginRateLimiter.checkAttempt("user", "10.0.0.1");
+        }
+    }
+}
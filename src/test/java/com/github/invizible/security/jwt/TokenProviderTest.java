@@ -1,11 +1,15 @@
 package com.github.invizible.security.jwt;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.invizible.config.ApplicationProperties;
 import com.github.invizible.security.AuthoritiesConstants;
 import io.github.jhipster.config.JHipsterProperties;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -13,7 +17,14 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
 
@@ -24,12 +35,17 @@ public class TokenProviderTest {
     private final String secretKey = "e5c9ee274ae87bc031adda32e27fa98b9290da83";
     private final long ONE_MINUTE = 60000;
     private JHipsterProperties jHipsterProperties;
+    private MetricRegistry metricRegistry;
     private TokenProvider tokenProvider;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         jHipsterProperties = Mockito.mock(JHipsterProperties.class);
-        tokenProvider = new TokenProvider(jHipsterProperties);
+        metricRegistry = new MetricRegistry();
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), metricRegistry);
         ReflectionTestUtils.setField(tokenProvider, "secretKey", secretKey);
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", ONE_MINUTE);
     }
@@ -79,6 +95,186 @@ public class TokenProviderTest {
         assertThat(isTokenValid).isEqualTo(false);
     }
 
+    @Test
+    public void testVerifiedTokenIsCached() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validateToken(token)).isTrue();
+        Authentication authentication = tokenProvider.getAuthentication(token);
+        assertThat(tokenProvider.validateToken(token)).isTrue();
+
+        assertThat(authentication.getName()).isEqualTo("anonymous");
+        assertThat(authentication.getCredentials()).isEqualTo(token);
+        assertThat(tokenProvider.getAuthentication(token)).isSameAs(authentication);
+        assertThat(metricRegistry.counter(MetricRegistry.name(TokenProvider.class, "cache", "misses")).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(MetricRegistry.name(TokenProvider.class, "cache", "hits")).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testResolveAuthenticationOfValidToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        TokenValidationResult result = tokenProvider.resolveAuthentication(token);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getFailure()).isNull();
+        assertThat(result.getAuthentication().getName()).isEqualTo("anonymous");
+        assertThat(result.getAuthentication().getAuthorities()).extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ANONYMOUS);
+    }
+
+    @Test
+    public void testResolveAuthenticationReportsFailure() {
+        assertThat(tokenProvider.resolveAuthentication(createTokenWithDifferentSignature()).getFailure())
+            .isEqualTo(TokenValidationResult.Failure.INVALID_SIGNATURE);
+        assertThat(tokenProvider.resolveAuthentication(createUnsupportedToken()).getFailure())
+            .isEqualTo(TokenValidationResult.Failure.UNSUPPORTED);
+        assertThat(tokenProvider.resolveAuthentication("").getFailure())
+            .isEqualTo(TokenValidationResult.Failure.INVALID);
+
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String expiredToken = tokenProvider.createToken(createAuthentication(), false);
+        TokenValidationResult result = tokenProvider.resolveAuthentication(expiredToken);
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getAuthentication()).isNull();
+        assertThat(result.getFailure()).isEqualTo(TokenValidationResult.Failure.EXPIRED);
+    }
+
+    @Test
+    public void testAuthoritiesAreSharedBetweenTokens() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherToken = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("other", "other",
+            createAuthentication().getAuthorities()), false);
+
+        GrantedAuthority authority = tokenProvider.getAuthentication(token).getAuthorities().iterator().next();
+        GrantedAuthority otherAuthority = tokenProvider.getAuthentication(otherToken).getAuthorities().iterator().next();
+
+        assertThat(authority.getAuthority()).isEqualTo(AuthoritiesConstants.ANONYMOUS);
+        assertThat(otherAuthority).isSameAs(authority);
+    }
+
+    @Test
+    public void testInvalidTokenIsNotCached() {
+        String token = createTokenWithDifferentSignature();
+
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+
+        assertThat(metricRegistry.counter(MetricRegistry.name(TokenProvider.class, "cache", "hits")).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSignAndVerifyWithKeySet() throws Exception {
+        KeyPair rsaKey = generateKeyPair("RSA", 2048);
+        KeyPair ecKey = generateKeyPair("EC", 256);
+        TokenProvider keySetTokenProvider = createKeySetTokenProvider(writeKeySet("rsa",
+            key("rsa", "RS256", rsaKey, true), key("ec", "ES256", ecKey, false)));
+
+        String token = keySetTokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(Jwts.parser().setSigningKey(rsaKey.getPublic()).parseClaimsJws(token).getHeader().getKeyId()).isEqualTo("rsa");
+        assertThat(keySetTokenProvider.resolveAuthentication(token).getAuthentication().getName()).isEqualTo("anonymous");
+        // Tokens signed with the HS512 secret are not accepted anymore
+        assertThat(keySetTokenProvider.validateToken(tokenProvider.createToken(createAuthentication(), false))).isFalse();
+    }
+
+    @Test
+    public void testKeySetRotation() throws Exception {
+        KeyPair oldKey = generateKeyPair("EC", 256);
+        KeyPair newKey = generateKeyPair("EC", 256);
+        File keySetFile = writeKeySet("old", key("old", "ES256", oldKey, true));
+        TokenProvider keySetTokenProvider = createKeySetTokenProvider(keySetFile);
+        String oldToken = keySetTokenProvider.createToken(createAuthentication(), false);
+
+        // The new key signs the new tokens, the old one still verifies the tokens it signed
+        rewriteKeySet(keySetFile, "new", key("new", "ES256", newKey, true), key("old", "ES256", oldKey, false));
+        keySetTokenProvider.reloadKeySet();
+        String newToken = keySetTokenProvider.createToken(createAuthentication(), false);
+        assertThat(Jwts.parser().setSigningKey(newKey.getPublic()).parseClaimsJws(newToken).getHeader().getKeyId()).isEqualTo("new");
+        assertThat(keySetTokenProvider.validateToken(oldToken)).isTrue();
+        assertThat(keySetTokenProvider.validateToken(newToken)).isTrue();
+
+        // Once the old key is removed, its tokens are rejected, even if they were cached
+        rewriteKeySet(keySetFile, "new", key("new", "ES256", newKey, true));
+        keySetTokenProvider.reloadKeySet();
+        assertThat(keySetTokenProvider.resolveAuthentication(oldToken).getFailure())
+            .isEqualTo(TokenValidationResult.Failure.INVALID_SIGNATURE);
+        assertThat(keySetTokenProvider.validateToken(newToken)).isTrue();
+    }
+
+    @Test
+    public void testCachedTokenOfRemovedKeyIsRejected() throws Exception {
+        KeyPair oldKey = generateKeyPair("EC", 256);
+        KeyPair newKey = generateKeyPair("EC", 256);
+        File keySetFile = writeKeySet("old", key("old", "ES256", oldKey, true));
+        TokenProvider keySetTokenProvider = createKeySetTokenProvider(keySetFile);
+        String oldToken = keySetTokenProvider.createToken(createAuthentication(), false);
+        assertThat(keySetTokenProvider.validateToken(oldToken)).isTrue();
+
+        // Swap the key set without clearing the cache, as when the token is cached by a request racing the reload
+        rewriteKeySet(keySetFile, "new", key("new", "ES256", newKey, true));
+        ReflectionTestUtils.setField(keySetTokenProvider, "keySet", JWTKeySet.load(keySetFile.toPath()));
+
+        assertThat(keySetTokenProvider.resolveAuthentication(oldToken).getFailure())
+            .isEqualTo(TokenValidationResult.Failure.INVALID_SIGNATURE);
+    }
+
+    @Test
+    public void testKeySetRejectsAlgorithmOfOtherKey() throws Exception {
+        KeyPair rsaKey = generateKeyPair("RSA", 2048);
+        TokenProvider keySetTokenProvider = createKeySetTokenProvider(writeKeySet("rsa", key("rsa", "RS256", rsaKey, true)));
+
+        // A token claiming the key id with an HMAC algorithm, signed with the public key as secret
+        String forgedToken = Jwts.builder()
+            .setHeaderParam("kid", "rsa")
+            .setSubject("anonymous")
+            .claim("auth", AuthoritiesConstants.ADMIN)
+            .signWith(SignatureAlgorithm.HS256, rsaKey.getPublic().getEncoded())
+            .setExpiration(new Date(new Date().getTime() + ONE_MINUTE))
+            .compact();
+
+        assertThat(keySetTokenProvider.resolveAuthentication(forgedToken).getFailure())
+            .isEqualTo(TokenValidationResult.Failure.INVALID_SIGNATURE);
+    }
+
+    private TokenProvider createKeySetTokenProvider(File keySetFile) {
+        JHipsterProperties properties = new JHipsterProperties();
+        properties.getSecurity().getAuthentication().getJwt().setSecret(secretKey);
+        properties.getSecurity().getAuthentication().getJwt().setTokenValidityInSeconds(60);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getJwt().setKeysetFile(keySetFile.getPath());
+        TokenProvider keySetTokenProvider = new TokenProvider(properties, applicationProperties, new MetricRegistry());
+        keySetTokenProvider.init();
+        return keySetTokenProvider;
+    }
+
+    private KeyPair generateKeyPair(String algorithm, int size) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(size);
+        return generator.generateKeyPair();
+    }
+
+    private String key(String kid, String algorithm, KeyPair keyPair, boolean withPrivateKey) {
+        return "{\"kid\":\"" + kid + "\",\"algorithm\":\"" + algorithm + "\"," +
+            "\"publicKey\":\"" + Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()) + "\"" +
+            (withPrivateKey ? ",\"privateKey\":\"" + Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()) + "\"" : "") +
+            "}";
+    }
+
+    private File writeKeySet(String signingKey, String... keys) throws IOException {
+        File file = temporaryFolder.newFile();
+        rewriteKeySet(file, signingKey, keys);
+        return file;
+    }
+
+    private void rewriteKeySet(File file, String signingKey, String... keys) throws IOException {
+        long previousModification = file.lastModified();
+        Files.write(file.toPath(), ("{\"signingKey\":\"" + signingKey + "\",\"keys\":[" + String.join(",", keys) + "]}")
+            .getBytes(StandardCharsets.UTF_8));
+        // Make sure the change is seen, whatever the resolution of the file system clock
+        file.setLastModified(Math.max(file.lastModified(), previousModification + 1000));
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
@@ -13,10 +13,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -41,6 +46,12 @@ public class UserServiceIntTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private User user;
 
     @Before
@@ -173,4 +184,35 @@ public class UserServiceIntTest {
         assertThat(userRepository.findOneByLogin("johndoe")).isNotPresent();
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatOldEmailIsEvictedAfterCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Cache usersByEmail = cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE);
+        transactionTemplate.execute(status -> userRepository.save(user));
+        try {
+            assertThat(userRepository.findOneWithAuthoritiesByEmail("johndoe@localhost")).isPresent();
+            assertThat(usersByEmail.get("johndoe@localhost")).isNotNull();
+
+            transactionTemplate.execute(status -> {
+                User managedUser = userRepository.findOne(user.getId());
+                managedUser.setEmail("john.doe@localhost");
+                userRepository.flush();
+                assertThat(usersByEmail.get("johndoe@localhost")).isNull();
+                // A concurrent transaction reads the old email before the commit
+                usersByEmail.put("johndoe@localhost", managedUser);
+                return null;
+            });
+
+            assertThat(usersByEmail.get("johndoe@localhost")).isNull();
+            assertThat(userRepository.findOneWithAuthoritiesByEmail("johndoe@localhost")).isNotPresent();
+            assertThat(userRepository.findOneWithAuthoritiesByEmail("john.doe@localhost")).isPresent();
+        } finally {
+            transactionTemplate.execute(status -> {
+                userRepository.delete(user.getId());
+                return null;
+            });
+        }
+    }
+
 }
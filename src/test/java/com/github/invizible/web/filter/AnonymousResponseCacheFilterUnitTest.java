@@ -0,0 +1,186 @@
+package com.github.invizible.web.filter;
+
+import com.github.invizible.config.ApplicationProperties;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the AnonymousResponseCacheFilter.
+ *
+ * @see AnonymousResponseCacheFilter
+ */
+public class AnonymousResponseCacheFilterUnitTest {
+
+    private static final String BODY = "[{\"id\":1,\"name\":\"AAAAAAAAAA\"}]";
+
+    private MetricRegistry metricRegistry;
+
+    private AnonymousResponseCache cache;
+
+    private AnonymousResponseCacheFilter filter;
+
+    private AtomicInteger calls;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        cache = new AnonymousResponseCache(null, new ConcurrentMapCacheManager());
+        ApplicationProperties.ResponseCache properties = new ApplicationProperties.ResponseCache();
+        properties.setMaxEntrySize(100);
+        filter = new AnonymousResponseCacheFilter(cache, properties, metricRegistry);
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    public void testResponseIsCached() throws Exception {
+        MockHttpServletResponse miss = perform(get("/api/rubrics"), controller(BODY));
+        MockHttpServletResponse hit = perform(get("/api/rubrics"), controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(miss.getContentAsString()).isEqualTo(BODY);
+        assertThat(miss.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=10");
+        assertThat(miss.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.AUTHORIZATION);
+        assertThat(hit.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(hit.getContentAsString()).isEqualTo(BODY);
+        assertThat(hit.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        assertThat(hit.getHeader("X-Total-Count")).isEqualTo("1");
+        assertThat(hit.getHeader(HttpHeaders.ETAG)).isEqualTo("\"0\"");
+        assertThat(hit.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=10");
+        assertThat(hit.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.AUTHORIZATION);
+        assertThat(metricRegistry.getMeters()
+            .get("com.github.invizible.web.filter.AnonymousResponseCacheFilter.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getMeters()
+            .get("com.github.invizible.web.filter.AnonymousResponseCacheFilter.misses").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges()
+            .get("com.github.invizible.web.filter.AnonymousResponseCacheFilter.hit-ratio").getValue()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testResponsesAreCachedByQueryString() throws Exception {
+        perform(get("/api/rubrics"), controller(BODY));
+        MockHttpServletRequest otherQuery = get("/api/rubrics");
+        otherQuery.setQueryString("sort=id,desc");
+        perform(otherQuery, controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCachedResponseNotModified() throws Exception {
+        perform(get("/api/rubrics"), controller(BODY));
+        MockHttpServletRequest request = get("/api/rubrics");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0\"");
+        MockHttpServletResponse response = perform(request, controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"0\"");
+    }
+
+    @Test
+    public void testAuthenticatedRequestIsNotCached() throws Exception {
+        MockHttpServletRequest request = get("/api/rubrics");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer token");
+        MockHttpServletResponse response = perform(request, controller(BODY));
+        perform(get("/api/rubrics"), controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isNull();
+    }
+
+    @Test
+    public void testErrorIsNotCached() throws Exception {
+        FilterChain notFound = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        };
+        MockHttpServletResponse response = perform(get("/api/rubrics/1"), notFound);
+        perform(get("/api/rubrics/1"), notFound);
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isNull();
+        assertThat(response.getHeader(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    public void testErrorWithBodyIsNotCached() throws Exception {
+        FilterChain badRequest = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+        MockHttpServletResponse response = perform(get("/api/rubrics"), badRequest);
+        perform(get("/api/rubrics"), badRequest);
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isNull();
+    }
+
+    @Test
+    public void testLargeResponseIsStreamedButNotCached() throws Exception {
+        String largeBody = new String(new char[101]).replace('\0', 'a');
+        MockHttpServletResponse response = perform(get("/api/publications"), controller(largeBody));
+        perform(get("/api/publications"), controller(largeBody));
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(response.getContentAsString()).isEqualTo(largeBody);
+    }
+
+    @Test
+    public void testExportIsNotCached() throws Exception {
+        MockHttpServletResponse response = perform(get("/api/publications/export"), controller(BODY));
+        perform(get("/api/publications/export"), controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isNull();
+    }
+
+    @Test
+    public void testResponseBuiltWhileClearedIsNotCached() throws Exception {
+        perform(get("/api/rubrics"), (request, response) -> {
+            controller(BODY).doFilter(request, response);
+            // A rubric is changed while the response is built
+            cache.clear();
+        });
+        perform(get("/api/rubrics"), controller(BODY));
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    private FilterChain controller(String body) {
+        return (request, response) -> {
+            calls.incrementAndGet();
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(HttpServletResponse.SC_OK);
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            httpResponse.addHeader(HttpHeaders.ETAG, "\"0\"");
+            httpResponse.addHeader("X-Total-Count", "1");
+            httpResponse.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.invizible.web.filter;
+
+import com.github.invizible.PublicationsApp;
+import com.github.invizible.domain.Rubric;
+import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.web.filter.AnonymousResponseCache.CachedResponse;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the AnonymousResponseCache, cleared by the Hibernate events.
+ *
+ * @see AnonymousResponseCache
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PublicationsApp.class)
+public class AnonymousResponseCacheIntTest {
+
+    private static final String KEY = "/api/rubrics";
+
+    @Autowired
+    private AnonymousResponseCache anonymousResponseCache;
+
+    @Autowired
+    private RubricRepository rubricRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testWriteClearsCacheOncePerTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        cacheResponse();
+        long generation = anonymousResponseCache.getGeneration();
+
+        List<Rubric> rubrics = transactionTemplate.execute(status -> {
+            Rubric rubric = rubricRepository.saveAndFlush(new Rubric().name("AAAAAAAAAA"));
+            // Cleared when the first change is flushed
+            assertThat(anonymousResponseCache.get(KEY)).isNull();
+
+            // But not by the next changes of the same transaction
+            cacheResponse();
+            rubricRepository.saveAndFlush(rubric.name("BBBBBBBBBB"));
+            Rubric otherRubric = rubricRepository.saveAndFlush(new Rubric().name("CCCCCCCCCC"));
+            assertThat(anonymousResponseCache.get(KEY)).isNotNull();
+            return Arrays.asList(rubric, otherRubric);
+        });
+        try {
+            // Cleared again once committed
+            assertThat(anonymousResponseCache.get(KEY)).isNull();
+            assertThat(anonymousResponseCache.getGeneration()).isEqualTo(generation + 2);
+        } finally {
+            transactionTemplate.execute(status -> {
+                rubrics.forEach(rubric -> rubricRepository.delete(rubric.getId()));
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void testRolledBackWriteClearsCacheOnce() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long generation = anonymousResponseCache.getGeneration();
+
+        transactionTemplate.execute(status -> {
+            rubricRepository.saveAndFlush(new Rubric().name("AAAAAAAAAA"));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(anonymousResponseCache.getGeneration()).isEqualTo(generation + 1);
+    }
+
+    private void cacheResponse() {
+        anonymousResponseCache.put(KEY, new CachedResponse(MediaType.APPLICATION_JSON_UTF8_VALUE,
+            Collections.emptyMap(), new byte[0]), anonymousResponseCache.getGeneration());
+    }
+}
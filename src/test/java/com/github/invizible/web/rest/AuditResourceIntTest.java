@@ -4,6 +4,7 @@ import com.github.invizible.PublicationsApp;
 import com.github.invizible.config.audit.AuditEventConverter;
 import com.github.invizible.domain.PersistentAuditEvent;
 import com.github.invizible.repository.PersistenceAuditEventRepository;
+import com.github.invizible.service.ApproximateCountService;
 import com.github.invizible.service.AuditEventService;
 import org.junit.Before;
 import org.junit.Test;
@@ -23,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -48,6 +50,9 @@ public class AuditResourceIntTest {
     @Autowired
     private AuditEventConverter auditEventConverter;
 
+    @Autowired
+    private ApproximateCountService approximateCountService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -65,7 +70,7 @@ public class AuditResourceIntTest {
     public void setup() {
         MockitoAnnotations.initMocks(this);
         AuditEventService auditEventService =
-            new AuditEventService(auditEventRepository, auditEventConverter);
+            new AuditEventService(auditEventRepository, auditEventConverter, approximateCountService);
         AuditResource auditResource = new AuditResource(auditEventService);
         this.restAuditMockMvc = MockMvcBuilders.standaloneSetup(auditResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -122,6 +127,36 @@ public class AuditResourceIntTest {
             .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)));
     }
 
+    @Test
+    public void getAllAuditsWithoutCount() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+
+        // Get all the audits, the total is approximate
+        restAuditMockMvc.perform(get("/management/audits?count=false"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)))
+            .andExpect(header().string("X-Total-Count-Approximate", "true"))
+            .andExpect(header().string("Link", containsString("count=false")));
+    }
+
+    @Test
+    public void getAuditsByDateWithoutCount() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+
+        // Generate dates for selecting audits by date, making sure the period will contain the audit
+        String fromDate  = SAMPLE_TIMESTAMP.minusSeconds(SECONDS_PER_DAY).toString().substring(0,10);
+        String toDate = SAMPLE_TIMESTAMP.plusSeconds(SECONDS_PER_DAY).toString().substring(0,10);
+
+        // Get the audits without count, the links keep the dates and skip the count too
+        restAuditMockMvc.perform(get("/management/audits?fromDate=" + fromDate + "&toDate=" + toDate + "&count=false"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("Link", containsString("fromDate=" + fromDate + "&toDate=" + toDate + "&count=false")));
+    }
+
     @Test
     public void getNonExistingAuditsByDate() throws Exception {
         // Initialize the database
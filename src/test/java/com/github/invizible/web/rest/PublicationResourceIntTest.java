@@ -2,36 +2,64 @@ package com.github.invizible.web.rest;
 
 import com.github.invizible.PublicationsApp;
 
+import com.github.invizible.config.ApplicationProperties;
 import com.github.invizible.domain.Publication;
+import com.github.invizible.domain.Rubric;
 import com.github.invizible.domain.User;
+import com.github.invizible.repository.PublicationFeedCache;
 import com.github.invizible.repository.PublicationRepository;
+import com.github.invizible.repository.UserRepository;
+import com.github.invizible.security.AuthoritiesConstants;
+import com.github.invizible.service.ApproximateCountService;
+import com.github.invizible.service.PublicationBulkService;
+import com.github.invizible.service.PublicationExportService;
+import com.github.invizible.service.PublicationSearchService;
+import com.github.invizible.service.PublicationUpdateService;
 import com.github.invizible.web.rest.errors.ExceptionTranslator;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
 
 import javax.persistence.EntityManager;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.github.invizible.web.rest.TestUtil.sameInstant;
 import static com.github.invizible.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -56,6 +84,33 @@ public class PublicationResourceIntTest {
     @Autowired
     private PublicationRepository publicationRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApproximateCountService approximateCountService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PublicationFeedCache publicationFeedCache;
+
+    @Autowired
+    private PublicationSearchService publicationSearchService;
+
+    @Autowired
+    private PublicationBulkService publicationBulkService;
+
+    @Autowired
+    private PublicationExportService publicationExportService;
+
+    @Autowired
+    private PublicationUpdateService publicationUpdateService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -68,6 +123,9 @@ public class PublicationResourceIntTest {
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private WebApplicationContext context;
+
     private MockMvc restPublicationMockMvc;
 
     private Publication publication;
@@ -75,7 +133,12 @@ public class PublicationResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final PublicationResource publicationResource = new PublicationResource(publicationRepository, userRepository);
+        cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE).clear();
+        // The search index isn't transactional: drop what the previous tests indexed and rolled back
+        publicationSearchService.reindexAll();
+        final PublicationResource publicationResource = new PublicationResource(publicationRepository, userRepository,
+            approximateCountService, publicationFeedCache, publicationSearchService, publicationBulkService, publicationExportService,
+            publicationUpdateService, applicationProperties);
         this.restPublicationMockMvc = MockMvcBuilders.standaloneSetup(publicationResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -146,6 +209,82 @@ public class PublicationResourceIntTest {
         assertThat(publicationList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    @WithMockUser("bulk-author")
+    public void createPublicationsInBulk() throws Exception {
+        User author = UserResourceIntTest.createEntity(em);
+        author.setLogin("bulk-author");
+        em.persist(author);
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        em.flush();
+        int databaseSizeBeforeCreate = publicationRepository.findAll().size();
+
+        Publication first = new Publication().title("First title").text(DEFAULT_TEXT).addRubrics(rubric);
+        Publication invalid = new Publication().title(null).text(DEFAULT_TEXT);
+        Rubric missingRubric = new Rubric().name("unknown");
+        missingRubric.setId(Long.MAX_VALUE);
+        Publication unknownRubric = new Publication().title("Other title").text(DEFAULT_TEXT).addRubrics(missingRubric);
+        Publication second = new Publication().title("Second title").text(DEFAULT_TEXT);
+
+        restPublicationMockMvc.perform(post("/api/publications/bulk")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(first, invalid, unknownRubric, second))))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-publicationsApp-params", "2"))
+            .andExpect(jsonPath("$.[*].index").value(contains(0, 1, 2, 3)))
+            .andExpect(jsonPath("$.[0].id").value(notNullValue()))
+            .andExpect(jsonPath("$.[0].errors").isEmpty())
+            .andExpect(jsonPath("$.[1].created").value(false))
+            .andExpect(jsonPath("$.[1].errors.[0]").value(containsString("title")))
+            .andExpect(jsonPath("$.[2].created").value(false))
+            .andExpect(jsonPath("$.[2].errors.[0]").value(containsString("Unknown rubric")))
+            .andExpect(jsonPath("$.[3].created").value(true));
+
+        // Only the valid publications are created, with the current user as author
+        List<Publication> publicationList = publicationRepository.findAll();
+        assertThat(publicationList).hasSize(databaseSizeBeforeCreate + 2);
+        Publication testPublication = publicationRepository.findOneWithEagerRelationships(
+            publicationList.get(publicationList.size() - 2).getId());
+        assertThat(testPublication.getTitle()).isEqualTo("First title");
+        assertThat(testPublication.getAuthor().getLogin()).isEqualTo("bulk-author");
+        assertThat(testPublication.getRubrics()).extracting(Rubric::getId).containsExactly(rubric.getId());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("bulk-author")
+    public void createPublicationsInBulkFromStream() throws Exception {
+        User author = UserResourceIntTest.createEntity(em);
+        author.setLogin("bulk-author");
+        em.persist(author);
+        em.flush();
+        int databaseSizeBeforeCreate = publicationRepository.findAll().size();
+
+        String lines = new String(TestUtil.convertObjectToJsonBytes(new Publication().title("First title").text(DEFAULT_TEXT))) +
+            "\nnot a publication\n\n" +
+            new String(TestUtil.convertObjectToJsonBytes(new Publication().title("Second title").text(DEFAULT_TEXT))) + "\n";
+
+        MvcResult result = restPublicationMockMvc.perform(post("/api/publications/bulk")
+            .contentType("application/x-ndjson")
+            .content(lines))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+            .andReturn();
+
+        // One result per non blank line, in order: the unreadable line is rejected on its own
+        String[] results = result.getResponse().getContentAsString().split("\n");
+        assertThat(results).hasSize(3);
+        assertThat(results[0]).contains("\"index\":0").contains("\"created\":true");
+        assertThat(results[1]).contains("\"index\":1").contains("\"created\":false").contains("unreadable");
+        assertThat(results[2]).contains("\"index\":2").contains("\"created\":true");
+
+        List<Publication> publicationList = publicationRepository.findAll();
+        assertThat(publicationList).hasSize(databaseSizeBeforeCreate + 2);
+        assertThat(publicationList).extracting(Publication::getTitle).contains("First title", "Second title");
+    }
+
     @Test
     @Transactional
     public void checkTitleIsRequired() throws Exception {
@@ -182,6 +321,24 @@ public class PublicationResourceIntTest {
         assertThat(publicationList).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void checkPublicationDateIsRequired() throws Exception {
+        int databaseSizeBeforeTest = publicationRepository.findAll().size();
+        // set the field null
+        publication.setPublicationDate(null);
+
+        // Create the Publication, which fails.
+
+        restPublicationMockMvc.perform(post("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(publication)))
+            .andExpect(status().isBadRequest());
+
+        List<Publication> publicationList = publicationRepository.findAll();
+        assertThat(publicationList).hasSize(databaseSizeBeforeTest);
+    }
+
     @Test
     @Transactional
     public void getAllPublications() throws Exception {
@@ -198,6 +355,232 @@ public class PublicationResourceIntTest {
             .andExpect(jsonPath("$.[*].publicationDate").value(hasItem(sameInstant(DEFAULT_PUBLICATION_DATE))));
     }
 
+    @Test
+    @Transactional
+    public void getAllPublicationsIsCachedUntilWrite() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // Read the first page through the feed cache
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())));
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE)
+            .get(new PageRequest(0, 20, Sort.Direction.DESC, "id"))).isNotNull();
+
+        // Create a publication through the REST API, which invalidates the feed cache once flushed
+        Publication newPublication = createEntity(em);
+        restPublicationMockMvc.perform(post("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(newPublication)))
+            .andExpect(status().isCreated());
+        em.flush();
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE)
+            .get(new PageRequest(0, 20, Sort.Direction.DESC, "id"))).isNull();
+
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
+            .andExpect(jsonPath("$.length()").value(publicationRepository.findAll().size()));
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationsIsNotCachedWhenClearedWhileLoading() throws Exception {
+        PageRequest pageable = new PageRequest(0, 20, Sort.Direction.DESC, "id");
+
+        // A write is flushed while the page is loaded, the page read before it must not be stored
+        publicationFeedCache.get(pageable, () -> {
+            publicationRepository.saveAndFlush(publication);
+            return "stale page";
+        });
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE).get(pageable)).isNull();
+
+        // Without a write in between, the page is stored
+        publicationFeedCache.get(pageable, () -> "page");
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE).get(pageable).get())
+            .isEqualTo("page");
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationsIsClearedByRubricUpdate() throws Exception {
+        // Initialize the database
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        publicationRepository.saveAndFlush(publication.addRubrics(rubric));
+
+        // Read the first page through the feed cache
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc"))
+            .andExpect(status().isOk());
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE)
+            .get(new PageRequest(0, 20, Sort.Direction.DESC, "id"))).isNotNull();
+
+        // Rename the rubric, which the cached page embeds
+        rubric.setName("BBBBBBBBBB");
+        em.flush();
+        assertThat(cacheManager.getCache(PublicationRepository.PUBLICATIONS_FEED_CACHE)
+            .get(new PageRequest(0, 20, Sort.Direction.DESC, "id"))).isNull();
+
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].rubrics[*].name").value(hasItem("BBBBBBBBBB")));
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationsLoadsRelationshipsInBatch() throws Exception {
+        // Initialize the database with publications from different authors, in several rubrics
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        Rubric otherRubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        em.persist(otherRubric);
+        for (int i = 0; i < 5; i++) {
+            publicationRepository.save(createEntity(em).addRubrics(rubric).addRubrics(otherRubric));
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // A full page, so that the total has to be counted
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc&size=3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$.[*].author.login").isNotEmpty())
+            .andExpect(jsonPath("$.[0].rubrics.length()").value(2))
+            .andExpect(header().string("X-Total-Count", notNullValue()));
+
+        // One query for the page of ids, one for the count, one for the publications with their authors and rubrics
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationSummaries() throws Exception {
+        // Initialize the database
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        publicationRepository.saveAndFlush(publication.addRubrics(rubric));
+
+        // Get the publication summaries
+        restPublicationMockMvc.perform(get("/api/publications?view=summary&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[0].id").value(publication.getId().intValue()))
+            .andExpect(jsonPath("$.[0].title").value(DEFAULT_TITLE))
+            .andExpect(jsonPath("$.[0].excerpt").value(DEFAULT_TEXT))
+            .andExpect(jsonPath("$.[0].publicationDate").value(sameInstant(DEFAULT_PUBLICATION_DATE)))
+            .andExpect(jsonPath("$.[0].authorLogin").value(publication.getAuthor().getLogin()))
+            .andExpect(jsonPath("$.[0].rubricIds").value(hasItem(rubric.getId().intValue())))
+            .andExpect(jsonPath("$.[0].text").doesNotExist())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("view=summary")));
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationSummariesWithCursor() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // The summary and keyset views don't combine, but the request is not ambiguous
+        restPublicationMockMvc.perform(get("/api/publications?view=summary&after=&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllPublicationsWithoutCount() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // Get all the publicationList, the total is approximate
+        restPublicationMockMvc.perform(get("/api/publications?sort=id,desc&count=false"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())))
+            .andExpect(header().string("X-Total-Count-Approximate", "true"))
+            .andExpect(header().string("X-Total-Count", notNullValue()))
+            .andExpect(header().string("Link", containsString("count=false")));
+    }
+
+    @Test
+    @Transactional
+    public void getPublicationsWithKeysetPagination() throws Exception {
+        // Initialize the database with three publications sharing the same date
+        Publication second = createEntity(em);
+        Publication third = createEntity(em);
+        publicationRepository.saveAndFlush(publication);
+        publicationRepository.saveAndFlush(second);
+        publicationRepository.saveAndFlush(third);
+
+        // Get the first page of the feed, ties on the date are broken by id descending
+        MvcResult firstPage = restPublicationMockMvc.perform(get("/api/publications?after=&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[0].id").value(third.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(second.getId().intValue()))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn();
+
+        // Follow the next link
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        restPublicationMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(publication.getId().intValue()))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getPublicationsWithInvalidCursor() throws Exception {
+        restPublicationMockMvc.perform(get("/api/publications?after=not-a-cursor"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportPublications() throws Exception {
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        Rubric otherRubric = RubricResourceIntTest.createEntity(em);
+        em.persist(otherRubric);
+        publicationRepository.saveAndFlush(publication.addRubrics(rubric).addRubrics(otherRubric));
+        Publication withoutRubric = publicationRepository.saveAndFlush(createEntity(em));
+
+        MvcResult result = restPublicationMockMvc.perform(get("/api/publications/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andReturn();
+
+        // One line per publication, with its rubrics gathered from the joined rows
+        List<String> lines = Arrays.asList(result.getResponse().getContentAsString().split("\n"));
+        assertThat(lines).hasSize(publicationRepository.findAll().size());
+        String exported = lines.stream().filter(line -> line.startsWith("{\"id\":" + publication.getId() + ","))
+            .findFirst().orElseThrow(AssertionError::new);
+        assertThat(exported).contains("\"title\":\"" + DEFAULT_TITLE + "\"");
+        assertThat(exported).contains("\"authorLogin\":\"" + publication.getAuthor().getLogin() + "\"");
+        assertThat(exported).contains("\"rubricIds\":[" + Math.min(rubric.getId(), otherRubric.getId()) + ","
+            + Math.max(rubric.getId(), otherRubric.getId()) + "]");
+        assertThat(lines.stream().anyMatch(line -> line.startsWith("{\"id\":" + withoutRubric.getId() + ",")
+            && line.endsWith("\"rubricIds\":[]}"))).isTrue();
+    }
+
+    @Test
+    public void exportPublicationsIsRestrictedToAdmins() throws Exception {
+        MockMvc securedMockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+
+        securedMockMvc.perform(get("/api/publications/export"))
+            .andExpect(status().isUnauthorized());
+        securedMockMvc.perform(get("/api/publications/export").with(user("user").authorities(
+            new SimpleGrantedAuthority(AuthoritiesConstants.USER))))
+            .andExpect(status().isForbidden());
+    }
+
     @Test
     @Transactional
     public void getPublication() throws Exception {
@@ -214,6 +597,55 @@ public class PublicationResourceIntTest {
             .andExpect(jsonPath("$.publicationDate").value(sameInstant(DEFAULT_PUBLICATION_DATE)));
     }
 
+    @Test
+    @Transactional
+    public void getPublicationNotModified() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // Get the publication, then get it again with the ETag of its current version
+        String eTag = restPublicationMockMvc.perform(get("/api/publications/{id}", publication.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"0-")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restPublicationMockMvc.perform(get("/api/publications/{id}", publication.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Get the publication with the ETag of another version
+        restPublicationMockMvc.perform(get("/api/publications/{id}", publication.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"1\", \"2\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(jsonPath("$.id").value(publication.getId().intValue()))
+            .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    @Transactional
+    public void getPublicationModifiedByRubricUpdate() throws Exception {
+        // Initialize the database with a publication of a rubric
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        publicationRepository.saveAndFlush(publication.addRubrics(rubric));
+        String eTag = restPublicationMockMvc.perform(get("/api/publications/{id}", publication.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Renaming the rubric changes the body of the publication, but not its version
+        rubric.setName("BBBBBBBBBB");
+        em.flush();
+
+        restPublicationMockMvc.perform(get("/api/publications/{id}", publication.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.version").value(0))
+            .andExpect(jsonPath("$.rubrics[*].name").value(hasItem("BBBBBBBBBB")));
+    }
+
     @Test
     @Transactional
     public void getNonExistingPublication() throws Exception {
@@ -252,6 +684,192 @@ public class PublicationResourceIntTest {
         assertThat(testPublication.getPublicationDate()).isEqualTo(UPDATED_PUBLICATION_DATE);
     }
 
+    @Test
+    @Transactional
+    public void updatePublicationWithoutVersion() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        int databaseSizeBeforeUpdate = publicationRepository.findAll().size();
+
+        // Update the publication without giving its version
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.title(UPDATED_TITLE).setVersion(null);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(publication.getId().intValue()));
+
+        // Validate the Publication in the database
+        List<Publication> publicationList = publicationRepository.findAll();
+        assertThat(publicationList).hasSize(databaseSizeBeforeUpdate);
+        assertThat(publicationRepository.findOne(publication.getId()).getTitle()).isEqualTo(UPDATED_TITLE);
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationWithIfMatch() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // Update the publication based on the ETag of its current version
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.title(UPDATED_TITLE).setVersion(null);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"1-")))
+            .andExpect(jsonPath("$.version").value(1));
+
+        // Validate the Publication in the database
+        Publication testPublication = publicationRepository.findOne(publication.getId());
+        assertThat(testPublication.getTitle()).isEqualTo(UPDATED_TITLE);
+        assertThat(testPublication.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationTextInTwoStatements() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.title(UPDATED_TITLE).text(UPDATED_TEXT);
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.title").value(UPDATED_TITLE))
+            .andExpect(jsonPath("$.author.login").value(publication.getAuthor().getLogin()))
+            .andExpect(jsonPath("$.version").value(1));
+
+        // One query for the publication with its author and its eager rubrics, one update checking its version
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationWithNullRubrics() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.setRubrics(null);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationWithUnknownAuthor() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        User unknownAuthor = new User();
+        unknownAuthor.setId(Long.MAX_VALUE);
+        updatedPublication.setAuthor(unknownAuthor);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationWithUnknownRubric() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        Rubric unknownRubric = new Rubric();
+        unknownRubric.setId(Long.MAX_VALUE);
+        updatedPublication.addRubrics(unknownRubric);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationWithStaleIfMatch() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+
+        // Update the publication based on a version it has already left
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.title(UPDATED_TITLE);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .header(HttpHeaders.IF_MATCH, "\"1\"")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isPreconditionFailed());
+
+        // Updating the rubrics checks the version too
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+        restPublicationMockMvc.perform(put("/api/publications")
+            .header(HttpHeaders.IF_MATCH, "\"1\"")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication.addRubrics(rubric))))
+            .andExpect(status().isPreconditionFailed());
+
+        // Validate the Publication in the database is unchanged
+        em.clear();
+        Publication testPublication = publicationRepository.findOne(publication.getId());
+        assertThat(testPublication.getTitle()).isEqualTo(DEFAULT_TITLE);
+        assertThat(testPublication.getRubrics()).isEmpty();
+        assertThat(testPublication.getVersion()).isEqualTo(0L);
+    }
+
+    @Test
+    @Transactional
+    public void updatePublicationRubricsWithIfMatch() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication);
+        Rubric rubric = RubricResourceIntTest.createEntity(em);
+        em.persist(rubric);
+
+        // Add a rubric to the publication
+        Publication updatedPublication = publicationRepository.findOne(publication.getId());
+        em.detach(updatedPublication);
+        updatedPublication.addRubrics(rubric);
+
+        restPublicationMockMvc.perform(put("/api/publications")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedPublication)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"1-")));
+
+        // Validate the Publication in the database
+        em.clear();
+        Publication testPublication = publicationRepository.findOne(publication.getId());
+        assertThat(testPublication.getRubrics()).extracting(Rubric::getId).containsExactly(rubric.getId());
+        assertThat(testPublication.getVersion()).isEqualTo(1L);
+    }
+
     @Test
     @Transactional
     public void updateNonExistingPublication() throws Exception {
@@ -270,6 +888,23 @@ public class PublicationResourceIntTest {
         assertThat(publicationList).hasSize(databaseSizeBeforeUpdate + 1);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingPublicationWithoutVersion() throws Exception {
+        int databaseSizeBeforeUpdate = publicationRepository.findAll().size();
+
+        // An unknown id without a version can't be updated, nor be created with this id
+        publication.setId(Long.MAX_VALUE);
+        restPublicationMockMvc.perform(put("/api/publications")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(publication)))
+            .andExpect(status().isNotFound());
+
+        // Validate the Publication in the database
+        List<Publication> publicationList = publicationRepository.findAll();
+        assertThat(publicationList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deletePublication() throws Exception {
@@ -287,6 +922,76 @@ public class PublicationResourceIntTest {
         assertThat(publicationList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void searchPublication() throws Exception {
+        // Initialize the database and the search index
+        publicationRepository.saveAndFlush(publication.title("Keyset pagination in depth").text("Seek instead of offset"));
+        publicationSearchService.index(publication);
+        Publication other = createEntity(em).title("Caching feeds").text("Read-through caches for pagination");
+        publicationRepository.saveAndFlush(other);
+        publicationSearchService.index(other);
+
+        // Search the publication, title matches rank first
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=pagination"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[0].id").value(publication.getId().intValue()))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(other.getId().intValue())));
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=keyset offset"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(other.getId().intValue()))));
+    }
+
+    @Test
+    public void searchPublicationBeyondResultWindow() throws Exception {
+        // The offset of this page overflows an int
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=pagination&page=200000000&size=20"))
+            .andExpect(status().isBadRequest());
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=pagination&page=500&size=20"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchReconciledPublication() throws Exception {
+        // Initialize the database without indexing, as for a write of another node
+        publicationRepository.saveAndFlush(publication.title("Written elsewhere"));
+        publicationSearchService.reconcile();
+
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=elsewhere"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())));
+
+        // Change the title without indexing: the count of publications stays the same, but the version changes
+        publicationRepository.saveAndFlush(publication.title("Rewritten later"));
+        publicationSearchService.reconcile();
+
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=elsewhere"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(publication.getId().intValue()))));
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=later"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(publication.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void searchDeletedPublication() throws Exception {
+        // Initialize the database
+        publicationRepository.saveAndFlush(publication.title("Soon deleted"));
+        publicationSearchService.index(publication);
+
+        restPublicationMockMvc.perform(delete("/api/publications/{id}", publication.getId())
+            .accept(TestUtil.APPLICATION_JSON_UTF8))
+            .andExpect(status().isOk());
+
+        restPublicationMockMvc.perform(get("/api/_search/publications?q=deleted"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(publication.getId().intValue()))));
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
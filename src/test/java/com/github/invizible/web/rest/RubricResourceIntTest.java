@@ -2,9 +2,14 @@ package com.github.invizible.web.rest;
 
 import com.github.invizible.PublicationsApp;
 
+import com.github.invizible.domain.Publication;
 import com.github.invizible.domain.Rubric;
+import com.github.invizible.repository.PublicationRepository;
 import com.github.invizible.repository.RubricRepository;
+import com.github.invizible.repository.UserRepository;
+import com.github.invizible.service.RubricCatalogService;
 import com.github.invizible.web.rest.errors.ExceptionTranslator;
+import com.github.invizible.web.rest.util.KeysetCursor;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -13,19 +18,28 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 import static com.github.invizible.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -44,6 +58,18 @@ public class RubricResourceIntTest {
     @Autowired
     private RubricRepository rubricRepository;
 
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RubricCatalogService rubricCatalogService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -63,7 +89,7 @@ public class RubricResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final RubricResource rubricResource = new RubricResource(rubricRepository);
+        final RubricResource rubricResource = new RubricResource(rubricRepository, publicationRepository, rubricCatalogService);
         this.restRubricMockMvc = MockMvcBuilders.standaloneSetup(rubricResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -157,6 +183,101 @@ public class RubricResourceIntTest {
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllRubricsNotModified() throws Exception {
+        // Initialize the database
+        rubricRepository.saveAndFlush(rubric);
+
+        // Get all the rubricList, then get it again with its ETag
+        String eTag = restRubricMockMvc.perform(get("/api/rubrics"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restRubricMockMvc.perform(get("/api/rubrics").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Once a rubric is updated, the list has another ETag
+        rubricRepository.saveAndFlush(rubric.name(UPDATED_NAME));
+        restRubricMockMvc.perform(get("/api/rubrics").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.[*].name").value(hasItem(UPDATED_NAME)));
+    }
+
+    @Test
+    @Transactional
+    public void getRubricCatalog() throws Exception {
+        // Initialize the database with two publications of the rubric, and one of another rubric
+        rubricRepository.saveAndFlush(rubric);
+        Rubric otherRubric = rubricRepository.saveAndFlush(createEntity(em).name(UPDATED_NAME));
+        publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(rubric));
+        publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(rubric).addRubrics(otherRubric));
+        rubricCatalogService.getCatalog();
+        rubricCatalogService.reconcile();
+
+        // Get the catalog
+        restRubricMockMvc.perform(get("/api/rubrics/catalog"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[?(@.id == " + rubric.getId() + ")].name").value(DEFAULT_NAME))
+            .andExpect(jsonPath("$.[?(@.id == " + rubric.getId() + ")].publicationCount").value(2))
+            .andExpect(jsonPath("$.[?(@.id == " + otherRubric.getId() + ")].publicationCount").value(1));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void getRubricCatalogCountsCommittedChanges() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Rubric otherRubric = createEntity(em).name(UPDATED_NAME);
+        Publication publication = transactionTemplate.execute(status -> {
+            rubricRepository.save(rubric);
+            rubricRepository.save(otherRubric);
+            return PublicationResourceIntTest.createEntity(em);
+        });
+        rubricCatalogService.getCatalog();
+        try {
+            // Create a publication of the rubric
+            transactionTemplate.execute(status -> publicationRepository.save(publication.addRubrics(rubric)));
+            restRubricMockMvc.perform(get("/api/rubrics/catalog"))
+                .andExpect(jsonPath("$.[?(@.id == " + rubric.getId() + ")].publicationCount").value(1))
+                .andExpect(jsonPath("$.[?(@.id == " + otherRubric.getId() + ")].publicationCount").value(0));
+
+            // Move it to the other rubric, in a transaction which is rolled back first
+            transactionTemplate.execute(status -> {
+                publicationRepository.findOne(publication.getId()).removeRubrics(rubric);
+                publicationRepository.flush();
+                status.setRollbackOnly();
+                return null;
+            });
+            transactionTemplate.execute(status -> publicationRepository.findOne(publication.getId())
+                .removeRubrics(rubric).addRubrics(otherRubric));
+            restRubricMockMvc.perform(get("/api/rubrics/catalog"))
+                .andExpect(jsonPath("$.[?(@.id == " + rubric.getId() + ")].publicationCount").value(0))
+                .andExpect(jsonPath("$.[?(@.id == " + otherRubric.getId() + ")].publicationCount").value(1));
+
+            // Delete it
+            transactionTemplate.execute(status -> {
+                publicationRepository.delete(publication.getId());
+                return null;
+            });
+            restRubricMockMvc.perform(get("/api/rubrics/catalog"))
+                .andExpect(jsonPath("$.[?(@.id == " + otherRubric.getId() + ")].publicationCount").value(0));
+        } finally {
+            transactionTemplate.execute(status -> {
+                if (publicationRepository.exists(publication.getId())) {
+                    publicationRepository.delete(publication.getId());
+                }
+                userRepository.delete(publication.getAuthor().getId());
+                rubricRepository.delete(rubric.getId());
+                rubricRepository.delete(otherRubric.getId());
+                return null;
+            });
+        }
+    }
+
     @Test
     @Transactional
     public void getRubric() throws Exception {
@@ -171,6 +292,58 @@ public class RubricResourceIntTest {
             .andExpect(jsonPath("$.name").value(DEFAULT_NAME.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getRubricPublications() throws Exception {
+        // Initialize the database with three publications of the rubric, and one of another rubric
+        rubricRepository.saveAndFlush(rubric);
+        Rubric otherRubric = rubricRepository.saveAndFlush(createEntity(em));
+        Publication first = publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(rubric));
+        Publication second = publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(rubric));
+        Publication third = publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(rubric).addRubrics(otherRubric));
+        Publication other = publicationRepository.saveAndFlush(PublicationResourceIntTest.createEntity(em).addRubrics(otherRubric));
+
+        // Get the first page, newest first
+        MvcResult firstPage = restRubricMockMvc.perform(get("/api/rubrics/{id}/publications?size=2", rubric.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].id").value(third.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(second.getId().intValue()))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("after=" + KeysetCursor.ofId(second.getId()).encode() + "&")))
+            .andReturn();
+
+        // Follow the next link
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        restRubricMockMvc.perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(first.getId().intValue()))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(other.getId().intValue()))))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getRubricPublicationsWithInvalidCursor() throws Exception {
+        // Initialize the database
+        rubricRepository.saveAndFlush(rubric);
+
+        // A raw id or a cursor of the publication feed isn't a cursor of this keyset
+        restRubricMockMvc.perform(get("/api/rubrics/{id}/publications?after=!", rubric.getId()))
+            .andExpect(status().isBadRequest());
+        String feedCursor = new KeysetCursor(ZonedDateTime.now(), 1L).encode();
+        restRubricMockMvc.perform(get("/api/rubrics/{id}/publications?after=" + feedCursor, rubric.getId()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingRubricPublications() throws Exception {
+        restRubricMockMvc.perform(get("/api/rubrics/{id}/publications", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void getNonExistingRubric() throws Exception {
@@ -223,6 +396,23 @@ public class RubricResourceIntTest {
         assertThat(rubricList).hasSize(databaseSizeBeforeUpdate + 1);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingRubricWithoutVersion() throws Exception {
+        int databaseSizeBeforeUpdate = rubricRepository.findAll().size();
+
+        // An unknown id without a version can't be updated, nor be created with this id
+        rubric.setId(Long.MAX_VALUE);
+        restRubricMockMvc.perform(put("/api/rubrics")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(rubric)))
+            .andExpect(status().isNotFound());
+
+        // Validate the Rubric in the database
+        List<Rubric> rubricList = rubricRepository.findAll();
+        assertThat(rubricList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteRubric() throws Exception {
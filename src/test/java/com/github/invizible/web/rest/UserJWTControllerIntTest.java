@@ -1,23 +1,36 @@
 package com.github.invizible.web.rest;
 
 import com.github.invizible.PublicationsApp;
+import com.github.invizible.config.ApplicationProperties;
 import com.github.invizible.domain.User;
+import com.github.invizible.repository.AuthorityRepository;
 import com.github.invizible.repository.UserRepository;
+import com.github.invizible.security.AuthoritiesConstants;
+import com.github.invizible.security.LoginRateLimiter;
+import com.github.invizible.service.RefreshTokenService;
 import com.github.invizible.security.jwt.TokenProvider;
 import com.github.invizible.web.rest.vm.LoginVM;
+import com.github.invizible.web.rest.vm.RefreshTokenVM;
 import com.github.invizible.web.rest.errors.ExceptionTranslator;
+import com.codahale.metrics.MetricRegistry;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -47,16 +60,32 @@ public class UserJWTControllerIntTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @Autowired
     private ExceptionTranslator exceptionTranslator;
 
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
     private MockMvc mockMvc;
 
     @Before
     public void setup() {
-        UserJWTController userJWTController = new UserJWTController(tokenProvider, authenticationManager);
-        this.mockMvc = MockMvcBuilders.standaloneSetup(userJWTController)
+        this.mockMvc = createMockMvc(new ApplicationProperties());
+    }
+
+    private MockMvc createMockMvc(ApplicationProperties applicationProperties) {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(applicationProperties, new MetricRegistry());
+        UserJWTController userJWTController = new UserJWTController(tokenProvider, authenticationManager, loginRateLimiter,
+            refreshTokenService);
+        return MockMvcBuilders.standaloneSetup(userJWTController)
             .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter)
             .build();
     }
 
@@ -80,6 +109,7 @@ public class UserJWTControllerIntTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.id_token").isString())
             .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.refresh_token").isNotEmpty())
             .andExpect(header().string("Authorization", not(nullValue())))
             .andExpect(header().string("Authorization", not(isEmptyString())));
     }
@@ -109,6 +139,37 @@ public class UserJWTControllerIntTest {
             .andExpect(header().string("Authorization", not(isEmptyString())));
     }
 
+    @Test
+    public void testAuthorizeRehashesWeakPassword() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-rehash");
+        user.setEmail("user-jwt-controller-rehash@example.com");
+        user.setActivated(true);
+        user.setPassword(new BCryptPasswordEncoder(4).encode("test"));
+
+        // Committed, as the password is re-hashed and saved by another thread
+        userRepository.saveAndFlush(user);
+        try {
+            LoginVM login = new LoginVM();
+            login.setUsername("user-jwt-controller-rehash");
+            login.setPassword("test");
+            mockMvc.perform(post("/api/authenticate")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(login)))
+                .andExpect(status().isOk());
+
+            String password = userRepository.findOneByLogin("user-jwt-controller-rehash").get().getPassword();
+            for (int i = 0; i < 500 && !password.startsWith("$2a$10$"); i++) {
+                Thread.sleep(10);
+                password = userRepository.findOneByLogin("user-jwt-controller-rehash").get().getPassword();
+            }
+            assertThat(password).startsWith("$2a$10$");
+            assertThat(passwordEncoder.matches("test", password)).isTrue();
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+
     @Test
     @Transactional
     public void testAuthorizeFails() throws Exception {
@@ -122,4 +183,94 @@ public class UserJWTControllerIntTest {
             .andExpect(jsonPath("$.id_token").doesNotExist())
             .andExpect(header().doesNotExist("Authorization"));
     }
+
+    @Test
+    @Transactional
+    public void testAuthorizeIsRateLimited() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getLoginRateLimit().getPrincipal().setCapacity(2);
+        mockMvc = createMockMvc(applicationProperties);
+
+        LoginVM login = new LoginVM();
+        login.setUsername("wrong-user");
+        login.setPassword("wrong password");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/authenticate")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(login)))
+                .andExpect(status().isUnauthorized());
+        }
+        mockMvc.perform(post("/api/authenticate")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "12"))
+            .andExpect(jsonPath("$.message").value("error.tooManyLoginAttempts"))
+            .andExpect(header().doesNotExist("Authorization"));
+    }
+
+    @Test
+    @Transactional
+    public void testRefresh() throws Exception {
+        String refreshToken = authorizeRefreshUser("user-jwt-controller-refresh");
+
+        RefreshTokenVM refresh = new RefreshTokenVM();
+        refresh.setRefreshToken(refreshToken);
+        String response = mockMvc.perform(post("/api/authenticate/refresh")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refresh)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.refresh_token").value(not(refreshToken)))
+            .andExpect(header().string("Authorization", not(isEmptyString())))
+            .andReturn().getResponse().getContentAsString();
+        assertThat(tokenProvider.getAuthentication(JsonPath.read(response, "$.id_token")).getName())
+            .isEqualTo("user-jwt-controller-refresh");
+
+        // A refresh token can only be used once
+        mockMvc.perform(post("/api/authenticate/refresh")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refresh)))
+            .andExpect(status().isUnauthorized())
+            .andExpect(header().doesNotExist("Authorization"));
+    }
+
+    @Test
+    @Transactional
+    public void testRevoke() throws Exception {
+        String refreshToken = authorizeRefreshUser("user-jwt-controller-revoke");
+
+        RefreshTokenVM refresh = new RefreshTokenVM();
+        refresh.setRefreshToken(refreshToken);
+        mockMvc.perform(post("/api/authenticate/revoke")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refresh)))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/authenticate/refresh")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refresh)))
+            .andExpect(status().isUnauthorized());
+    }
+
+    private String authorizeRefreshUser(String username) throws Exception {
+        User user = new User();
+        user.setLogin(username);
+        user.setEmail(username + "@example.com");
+        user.setActivated(true);
+        user.setAuthorities(Collections.singleton(authorityRepository.findOne(AuthoritiesConstants.USER)));
+        user.setPassword(passwordEncoder.encode("test"));
+
+        userRepository.saveAndFlush(user);
+
+        LoginVM login = new LoginVM();
+        login.setUsername(username);
+        login.setPassword("test");
+        String response = mockMvc.perform(post("/api/authenticate")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.refresh_token");
+    }
 }
@@ -16,6 +16,7 @@ import org.zalando.problem.spring.web.advice.MediaTypes;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -148,4 +149,13 @@ public class ExceptionTranslatorIntTest {
             .andExpect(jsonPath("$.title").value("Internal Server Error"));
     }
 
+    @Test
+    public void testPasswordHashingOverloaded() throws Exception {
+        mockMvc.perform(get("/test/password-hashing-overloaded"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(content().contentType(MediaTypes.PROBLEM))
+            .andExpect(header().string("Retry-After", "1"))
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_OVERLOADED));
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.github.invizible.web.rest.errors;
 
+import com.github.invizible.security.PasswordHashingOverloadedException;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -68,6 +69,11 @@ public class ExceptionTranslatorTestController {
         throw new RuntimeException();
     }
 
+    @GetMapping("/test/password-hashing-overloaded")
+    public void passwordHashingOverloaded() {
+        throw new PasswordHashingOverloadedException("test password hashing overloaded");
+    }
+
     public static class TestDTO {
 
         @NotNull
@@ -2,6 +2,7 @@ package com.github.invizible.web.rest.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -11,6 +12,8 @@ import org.junit.Test;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpHeaders;
 
 /**
@@ -41,4 +44,68 @@ public class PaginationUtilUnitTest {
         assertTrue(Long.valueOf(xTotalCountHeaders.get(0)).equals(400L));
     }
 
+    @Test
+    public void generateSearchPaginationHttpHeadersTest() {
+        String baseUrl = "/api/_search/example";
+        Page<String> page = new PageImpl<>(new ArrayList<>(), new PageRequest(0, 50), 80L);
+        HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders("a&b c", page, baseUrl);
+        String expectedData = "</api/_search/example?page=1&size=50&q=a%26b+c>; rel=\"next\","
+                + "</api/_search/example?page=1&size=50&q=a%26b+c>; rel=\"last\","
+                + "</api/_search/example?page=0&size=50&q=a%26b+c>; rel=\"first\"";
+        assertEquals(expectedData, headers.getFirst(HttpHeaders.LINK));
+        assertEquals("80", headers.getFirst("X-Total-Count"));
+    }
+
+    @Test
+    public void generateSlicePaginationHttpHeadersTest() {
+        String baseUrl = "/api/_search/example";
+        Slice<String> slice = new SliceImpl<>(new ArrayList<>(), new PageRequest(6, 50), true);
+        HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice, baseUrl);
+        String expectedData = "</api/_search/example?page=7&size=50>; rel=\"next\","
+                + "</api/_search/example?page=5&size=50>; rel=\"prev\","
+                + "</api/_search/example?page=0&size=50>; rel=\"first\"";
+        assertEquals(expectedData, headers.getFirst(HttpHeaders.LINK));
+        assertNull(headers.get("X-Total-Count"));
+    }
+
+    @Test
+    public void generateSlicePaginationHttpHeadersWithApproximateCountTest() {
+        String baseUrl = "/api/_search/example";
+        Slice<String> slice = new SliceImpl<>(new ArrayList<>(), new PageRequest(6, 50), true);
+        HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice, 400L, baseUrl);
+        String expectedData = "</api/_search/example?page=7&size=50>; rel=\"next\","
+                + "</api/_search/example?page=5&size=50>; rel=\"prev\","
+                + "</api/_search/example?page=7&size=50>; rel=\"last\","
+                + "</api/_search/example?page=0&size=50>; rel=\"first\"";
+        assertEquals(expectedData, headers.getFirst(HttpHeaders.LINK));
+        assertEquals("400", headers.getFirst("X-Total-Count"));
+        assertEquals("true", headers.getFirst("X-Total-Count-Approximate"));
+    }
+
+    @Test
+    public void generateSlicePaginationHttpHeadersWithUnderestimatedCountTest() {
+        String baseUrl = "/api/_search/example";
+        Slice<String> slice = new SliceImpl<>(new ArrayList<>(), new PageRequest(6, 50), true);
+        HttpHeaders headers = PaginationUtil.generateSlicePaginationHttpHeaders(slice, 10L, baseUrl);
+        assertEquals("301", headers.getFirst("X-Total-Count"));
+    }
+
+    @Test
+    public void generateKeysetPaginationHttpHeadersTest() {
+        String baseUrl = "/api/publications";
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders("abc", 20, baseUrl);
+        List<String> strHeaders = headers.get(HttpHeaders.LINK);
+        assertNotNull(strHeaders);
+        assertTrue(strHeaders.size() == 1);
+        String expectedData = "</api/publications?after=abc&size=20>; rel=\"next\","
+                + "</api/publications?after=&size=20>; rel=\"first\"";
+        assertEquals(expectedData, strHeaders.get(0));
+        assertNull(headers.get("X-Total-Count"));
+    }
+
+    @Test
+    public void generateKeysetPaginationHttpHeadersOnLastPageTest() {
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(null, 20, "/api/publications");
+        assertEquals("</api/publications?after=&size=20>; rel=\"first\"", headers.getFirst(HttpHeaders.LINK));
+    }
 }